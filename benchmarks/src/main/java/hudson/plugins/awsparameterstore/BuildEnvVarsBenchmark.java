@@ -0,0 +1,112 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.tasks.SimpleBuildWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link AwsParameterStoreService#buildEnvVars} end to end, from the first request to
+ * the last environment variable, against a {@link StubParameterSource}. The parameter cache is
+ * disabled, so every invocation fetches every page.
+ *
+ * @author Rik Turnbull
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildEnvVarsBenchmark {
+
+  private static final String REGION_NAME = "eu-west-1";
+
+  @Param({ "10", "1000", "50000" })
+  public int count;
+
+  private final Map<String,String> env = new HashMap<String,String>();
+  private AwsParameterStoreService service;
+
+  /**
+   * Naming mode, which only applies to parameters fetched by path.
+   */
+  @State(Scope.Benchmark)
+  public static class Naming {
+    @Param({ AwsParameterStoreService.NAMING_BASENAME, AwsParameterStoreService.NAMING_RELATIVE, AwsParameterStoreService.NAMING_ABSOLUTE })
+    public String naming;
+  }
+
+  /**
+   * Creates the service.
+   */
+  @Setup
+  public void setUp() {
+    // measure the plugin rather than the rate limit that protects AWS
+    RateLimiter.INITIAL_RATE = Integer.MAX_VALUE;
+    RateLimiter.MAX_RATE = Integer.MAX_VALUE;
+    service = new AwsParameterStoreService(null, REGION_NAME, new StubParameterSource(count));
+  }
+
+  /**
+   * Adds every parameter fetched with <code>getParametersByPath</code>.
+   *
+   * @param naming  environment variable naming
+   * @return the build wrapper context
+   */
+  @Benchmark
+  public SimpleBuildWrapper.Context byPath(Naming naming) {
+    final SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+    service.buildEnvVars(context, env, StubParameterSource.PATH, false, naming.naming, null);
+    return context;
+  }
+
+  /**
+   * Adds every parameter listed with <code>describeParameters</code> and fetched with <code>getParameters</code>.
+   *
+   * @return the build wrapper context
+   */
+  @Benchmark
+  public SimpleBuildWrapper.Context byName() {
+    final SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+    service.buildEnvVars(context, env, null, false, null, null);
+    return context;
+  }
+}
@@ -0,0 +1,98 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures mapping parameter names to environment variable names with each naming mode, both
+ * as builds do, where names are remembered, and without remembering names.
+ * Each invocation maps every name once.
+ *
+ * @author Rik Turnbull
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvironmentVariableBenchmark {
+
+  @Param({ "10", "1000", "50000" })
+  public int count;
+
+  @Param({ AwsParameterStoreService.NAMING_BASENAME, AwsParameterStoreService.NAMING_RELATIVE, AwsParameterStoreService.NAMING_ABSOLUTE })
+  public String naming;
+
+  private String[] names;
+
+  /**
+   * Generates the parameter names.
+   */
+  @Setup
+  public void setUp() {
+    final List<String> list = StubParameterSource.names(count);
+    names = list.toArray(new String[list.size()]);
+  }
+
+  /**
+   * Maps every name as a build does.
+   *
+   * @param blackhole  consumes the environment variable names
+   */
+  @Benchmark
+  public void toEnvironmentVariable(Blackhole blackhole) {
+    for(String name : names) {
+      blackhole.consume(AwsParameterStoreService.toEnvironmentVariable(name, StubParameterSource.PATH, naming));
+    }
+  }
+
+  /**
+   * Maps every name without remembering the results.
+   *
+   * @param blackhole  consumes the environment variable names
+   */
+  @Benchmark
+  public void convert(Blackhole blackhole) {
+    for(String name : names) {
+      blackhole.consume(EnvironmentVariableNames.convert(name, StubParameterSource.PATH, naming));
+    }
+  }
+}
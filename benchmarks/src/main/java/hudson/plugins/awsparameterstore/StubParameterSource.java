@@ -0,0 +1,161 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ParameterSource} that answers from memory with pages of the same size as AWS, so that
+ * benchmarks measure the plugin rather than the network. Every parameter is directly under
+ * {@link #PATH}. Results are built once, so serving a page does not allocate.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class StubParameterSource extends ParameterSource implements ParameterSource.Client {
+
+  static final String PATH = "/service/app";
+
+  private static final int GET_PARAMETERS_BY_PATH_MAX_RESULTS = 10;
+  private static final int DESCRIBE_PARAMETERS_MAX_RESULTS = 50;
+
+  private final Map<String,Parameter> parameters = new HashMap<String,Parameter>();
+  private final GetParametersByPathResult[] getParametersByPathResults;
+  private final DescribeParametersResult[] describeParametersResults;
+
+  /**
+   * Creates a new {@link StubParameterSource}.
+   *
+   * @param count  number of parameters
+   */
+  StubParameterSource(int count) {
+    final List<Parameter> all = new ArrayList<Parameter>(count);
+    for(String name : names(count)) {
+      final Parameter parameter = new Parameter().withName(name).withType("SecureString").withValue("value-of-" + name).withVersion(1L);
+      parameters.put(name, parameter);
+      all.add(parameter);
+    }
+
+    getParametersByPathResults = new GetParametersByPathResult[Math.max(1, pages(count, GET_PARAMETERS_BY_PATH_MAX_RESULTS))];
+    for(int i = 0; i < getParametersByPathResults.length; i++) {
+      getParametersByPathResults[i] = new GetParametersByPathResult().
+        withParameters(page(all, i, GET_PARAMETERS_BY_PATH_MAX_RESULTS)).
+        withNextToken(nextToken(i, getParametersByPathResults.length));
+    }
+
+    describeParametersResults = new DescribeParametersResult[Math.max(1, pages(count, DESCRIBE_PARAMETERS_MAX_RESULTS))];
+    for(int i = 0; i < describeParametersResults.length; i++) {
+      final List<ParameterMetadata> metadata = new ArrayList<ParameterMetadata>();
+      for(Parameter parameter : page(all, i, DESCRIBE_PARAMETERS_MAX_RESULTS)) {
+        metadata.add(new ParameterMetadata().withName(parameter.getName()).withType(parameter.getType()).withVersion(parameter.getVersion()));
+      }
+      describeParametersResults[i] = new DescribeParametersResult().
+        withParameters(metadata).
+        withNextToken(nextToken(i, describeParametersResults.length));
+    }
+  }
+
+  /**
+   * Generates <code>count</code> parameter names under {@link #PATH}, mixing the characters
+   * found in real names: lower case letters, digits, '-', '_' and '.'.
+   *
+   * @param count  number of names
+   * @return parameter names
+   */
+  static List<String> names(int count) {
+    final String[] components = { "database", "queue", "cache", "search", "payments" };
+    final String[] settings = { "password", "user-name", "connection_url", "api.key", "timeout-ms" };
+    final List<String> names = new ArrayList<String>(count);
+    for(int i = 0; i < count; i++) {
+      names.add(String.format("%s/%s-%05d-%s", PATH, components[i % components.length], i, settings[(i / components.length) % settings.length]));
+    }
+    return names;
+  }
+
+  @Override
+  public Client getClient(AWSCredentialsProvider credentialsProvider, String credentialsIdentity, String regionName) {
+    return this;
+  }
+
+  @Override
+  public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+    return describeParametersResults[pageIndex(request.getNextToken())];
+  }
+
+  @Override
+  public GetParameterResult getParameter(GetParameterRequest request) {
+    return new GetParameterResult().withParameter(parameters.get(request.getName()));
+  }
+
+  @Override
+  public GetParametersResult getParameters(GetParametersRequest request) {
+    final List<Parameter> result = new ArrayList<Parameter>(request.getNames().size());
+    final List<String> invalid = new ArrayList<String>();
+    for(String name : request.getNames()) {
+      final Parameter parameter = parameters.get(name);
+      if(parameter == null) {
+        invalid.add(name);
+      } else {
+        result.add(parameter);
+      }
+    }
+    return new GetParametersResult().withParameters(result).withInvalidParameters(invalid);
+  }
+
+  @Override
+  public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+    return getParametersByPathResults[pageIndex(request.getNextToken())];
+  }
+
+  private static int pages(int count, int pageSize) {
+    return (count + pageSize - 1) / pageSize;
+  }
+
+  private static List<Parameter> page(List<Parameter> parameters, int index, int pageSize) {
+    return parameters.subList(Math.min(index * pageSize, parameters.size()), Math.min((index + 1) * pageSize, parameters.size()));
+  }
+
+  private static String nextToken(int index, int pages) {
+    return index + 1 < pages ? Integer.toString(index + 1) : null;
+  }
+
+  private static int pageIndex(String nextToken) {
+    return nextToken == null ? 0 : Integer.parseInt(nextToken);
+  }
+}
@@ -0,0 +1,146 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterNotFoundException;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterVersionNotFoundException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Classifies exceptions thrown by AWS calls.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class AwsErrors {
+
+  private static final int FORBIDDEN = 403;
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int INTERNAL_SERVER_ERROR = 500;
+
+  private static final Set<String> THROTTLING_ERROR_CODES = new HashSet<String>(Arrays.asList(
+    "Throttling",
+    "ThrottlingException",
+    "ThrottledException",
+    "TooManyRequestsException",
+    "RequestLimitExceeded",
+    "RequestThrottled",
+    "RequestThrottledException"
+  ));
+
+  private static final Set<String> TRANSIENT_ERROR_CODES = new HashSet<String>(Arrays.asList(
+    "InternalError",
+    "InternalFailure",
+    "InternalServerError",
+    "ServiceUnavailable",
+    "RequestTimeout",
+    "RequestTimeoutException"
+  ));
+
+  private static final Set<String> ACCESS_DENIED_ERROR_CODES = new HashSet<String>(Arrays.asList(
+    "AccessDenied",
+    "AccessDeniedException",
+    "UnauthorizedOperation"
+  ));
+
+  private static final Set<String> NOT_FOUND_ERROR_CODES = new HashSet<String>(Arrays.asList(
+    "ParameterNotFound",
+    "ParameterVersionNotFound"
+  ));
+
+  private AwsErrors() {
+  }
+
+  /**
+   * Checks whether <code>e</code> means the parameter does not exist.
+   *
+   * @param e  the exception
+   * @return <code>true</code> if the parameter was not found
+   */
+  static boolean isNotFound(Exception e) {
+    return e instanceof ParameterNotFoundException ||
+           e instanceof ParameterVersionNotFoundException ||
+           (e instanceof AmazonServiceException && NOT_FOUND_ERROR_CODES.contains(((AmazonServiceException)e).getErrorCode()));
+  }
+
+  /**
+   * Checks whether <code>e</code> means the credentials are not allowed to make the call.
+   *
+   * @param e  the exception
+   * @return <code>true</code> if access was denied
+   */
+  static boolean isAccessDenied(Exception e) {
+    if(e instanceof AmazonServiceException) {
+      final AmazonServiceException ase = (AmazonServiceException)e;
+      return ase.getStatusCode() == FORBIDDEN || ACCESS_DENIED_ERROR_CODES.contains(ase.getErrorCode());
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether <code>e</code> means AWS throttled the call.
+   *
+   * @param e  the exception
+   * @return <code>true</code> if the call was throttled
+   */
+  static boolean isThrottling(Exception e) {
+    if(e instanceof AmazonServiceException) {
+      final AmazonServiceException ase = (AmazonServiceException)e;
+      return ase.getStatusCode() == TOO_MANY_REQUESTS || THROTTLING_ERROR_CODES.contains(ase.getErrorCode());
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether the call that threw <code>e</code> may succeed if it is retried:
+   * throttling, server errors and connection failures are retryable, while errors such as
+   * <code>AccessDeniedException</code> and <code>ParameterNotFound</code> are not.
+   *
+   * @param e  the exception
+   * @return <code>true</code> if the call should be retried
+   */
+  static boolean isRetryable(Exception e) {
+    if(e instanceof AmazonServiceException) {
+      final AmazonServiceException ase = (AmazonServiceException)e;
+      return isThrottling(e) ||
+             ase.getStatusCode() >= INTERNAL_SERVER_ERROR ||
+             TRANSIENT_ERROR_CODES.contains(ase.getErrorCode());
+    }
+    if(e instanceof AmazonClientException && !(e instanceof AbortedException)) {
+      for(Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+        if(cause instanceof IOException) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,203 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.RegionUtils;
+
+import com.cloudbees.jenkins.plugins.awscredentials.AWSCredentialsHelper;
+
+import com.google.inject.Inject;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.util.ListBoxModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractSynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * A pipeline step that returns the value of one parameter:
+ * <pre>
+ * def url = awsParameter('/service/db/url')
+ * </pre>
+ * Lookups from concurrent builds and parallel branches are gathered into batches by the {@link ParameterBatcher}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class AwsParameterStep extends AbstractStepImpl {
+
+  private final String name;
+  private String credentialsId;
+  private String regionName;
+
+  /**
+   * Creates a new {@link AwsParameterStep}.
+   *
+   * @param name  parameter name
+   */
+  @DataBoundConstructor
+  public AwsParameterStep(String name) {
+    this.name = StringUtils.stripToNull(name);
+  }
+
+  /**
+   * Gets parameter name.
+   * @return parameter name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets AWS credentials identifier.
+   * @return AWS credentials identifier
+   */
+  public String getCredentialsId() {
+    return credentialsId;
+  }
+
+  /**
+   * Sets the AWS credentials identifier.
+   *
+   * @param credentialsId  aws credentials id
+   */
+  @DataBoundSetter
+  public void setCredentialsId(String credentialsId) {
+    this.credentialsId = StringUtils.stripToNull(credentialsId);
+  }
+
+  /**
+   * Gets AWS region name.
+   * @return aws region name
+   */
+  public String getRegionName() {
+    return regionName;
+  }
+
+  /**
+   * Sets the AWS region name.
+   *
+   * @param regionName  aws region name
+   */
+  @DataBoundSetter
+  public void setRegionName(String regionName) {
+    this.regionName = regionName;
+  }
+
+  /**
+   * Fetches the parameter value.
+   */
+  public static final class Execution extends AbstractSynchronousNonBlockingStepExecution<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private transient AwsParameterStep step;
+
+    @StepContextParameter
+    private transient Run<?,?> run;
+
+    @StepContextParameter
+    private transient EnvVars env;
+
+    @Override
+    protected String run() throws Exception {
+      final AwsParameterStoreService service = new AwsParameterStoreService(step.getCredentialsId(), step.getRegionName());
+      service.setAction(AwsParameterStoreAction.get(run));
+      final String value = service.getParameterValue(env, step.getName());
+      if(value == null) {
+        throw new AbortException("Cannot fetch parameter: " + step.getName());
+      }
+      return value;
+    }
+  }
+
+  /**
+   * A Jenkins <code>StepDescriptor</code> for the {@link AwsParameterStep}.
+   *
+   * @author Rik Turnbull
+   *
+   */
+  @Extension
+  public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+    public DescriptorImpl() {
+      super(Execution.class);
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "awsParameter";
+    }
+
+    @Override
+    public String getDisplayName() {
+      return Messages.parameterStepDisplayName();
+    }
+
+    /**
+     * Returns a list of AWS credentials identifiers.
+     * @return {@link ListBoxModel} populated with AWS credential identifiers
+     */
+    public ListBoxModel doFillCredentialsIdItems() {
+      return AWSCredentialsHelper.doFillCredentialsIdItems(Jenkins.getActiveInstance());
+    }
+
+    /**
+     * Returns a list of AWS region names.
+     * @return {@link ListBoxModel} populated with AWS region names
+     */
+    public ListBoxModel doFillRegionNameItems() {
+      final ListBoxModel options = new ListBoxModel();
+      final List<String> regionNames = new ArrayList<String>();
+      final List<Region> regions = RegionUtils.getRegions();
+      for(Region region : regions) {
+        regionNames.add(region.getName());
+      }
+      Collections.sort(regionNames);
+      options.add("- select -", null);
+      for(String regionName : regionNames) {
+        options.add(regionName);
+      }
+      return options;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.model.Run;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jenkins.model.RunAction2;
+
+/**
+ * Records what happened when AWS Parameter Store parameters were fetched for a build: parameters
+ * that could not be fetched and the {@link FetchTelemetry}. Both are shown in the build summary.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class AwsParameterStoreAction implements RunAction2 {
+
+  private final List<UnavailableParameter> unavailableParameters = new ArrayList<UnavailableParameter>();
+  private FetchTelemetry telemetry = new FetchTelemetry();
+
+  private transient Run<?,?> run;
+
+  /**
+   * Gets the {@link AwsParameterStoreAction} for <code>run</code>, adding one if it has none.
+   *
+   * @param run  the build
+   * @return action or <code>null</code> if <code>run</code> is <code>null</code>
+   */
+  static AwsParameterStoreAction get(Run<?,?> run) {
+    if(run == null) {
+      return null;
+    }
+    synchronized(run) {
+      AwsParameterStoreAction action = run.getAction(AwsParameterStoreAction.class);
+      if(action == null) {
+        action = new AwsParameterStoreAction();
+        run.addAction(action);
+      }
+      return action;
+    }
+  }
+
+  /**
+   * Records a parameter that could not be fetched.
+   *
+   * @param name    parameter name
+   * @param reason  why the parameter could not be fetched
+   * @param cached  <code>true</code> if the parameter was skipped because it failed recently
+   */
+  synchronized void addUnavailableParameter(String name, String reason, boolean cached) {
+    unavailableParameters.add(new UnavailableParameter(name, reason, cached));
+  }
+
+  /**
+   * Adds everything recorded by <code>other</code>, for example by a fetch made before the build started.
+   *
+   * @param other  another action
+   */
+  void addAll(AwsParameterStoreAction other) {
+    final List<UnavailableParameter> others = other.getUnavailableParameters();
+    synchronized(this) {
+      unavailableParameters.addAll(others);
+    }
+    getTelemetry().addAll(other.getTelemetry());
+  }
+
+  /**
+   * Gets the parameters that could not be fetched.
+   * @return unavailable parameters
+   */
+  public synchronized List<UnavailableParameter> getUnavailableParameters() {
+    return Collections.unmodifiableList(new ArrayList<UnavailableParameter>(unavailableParameters));
+  }
+
+  /**
+   * Gets what was recorded about fetching parameters.
+   * @return telemetry
+   */
+  public synchronized FetchTelemetry getTelemetry() {
+    return telemetry;
+  }
+
+  /**
+   * Adds telemetry to actions saved before it was recorded.
+   * @return this action
+   */
+  protected synchronized Object readResolve() {
+    if(telemetry == null) {
+      telemetry = new FetchTelemetry();
+    }
+    return this;
+  }
+
+  /**
+   * Gets the build.
+   * @return the build
+   */
+  public Run<?,?> getRun() {
+    return run;
+  }
+
+  @Override
+  public void onAttached(Run<?,?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public void onLoad(Run<?,?> run) {
+    this.run = run;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return Messages.actionDisplayName();
+  }
+
+  @Override
+  public String getUrlName() {
+    return null;
+  }
+
+  /**
+   * A parameter that could not be fetched.
+   */
+  public static final class UnavailableParameter {
+    private final String name;
+    private final String reason;
+    private final boolean cached;
+
+    UnavailableParameter(String name, String reason, boolean cached) {
+      this.name = name;
+      this.reason = reason;
+      this.cached = cached;
+    }
+
+    /**
+     * Gets the parameter name.
+     * @return parameter name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets why the parameter could not be fetched.
+     * @return reason
+     */
+    public String getReason() {
+      return reason;
+    }
+
+    /**
+     * Checks whether the parameter was skipped because it failed recently.
+     * @return <code>true</code> if the failure was cached
+     */
+    public boolean isCached() {
+      return cached;
+    }
+  }
+}
@@ -43,6 +43,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -64,6 +65,11 @@ import org.jenkinsci.Symbol;
  */
 public class AwsParameterStoreBuildWrapper extends SimpleBuildWrapper {
 
+  /**
+   * Default seconds to wait for parameters fetched before set up.
+   */
+  public static final int DEFAULT_ASYNC_TIMEOUT = 60;
+
   private static final Logger LOGGER = Logger.getLogger(AwsParameterStoreBuildWrapper.class.getName());
 
   private String credentialsId;
@@ -72,6 +78,11 @@ public class AwsParameterStoreBuildWrapper extends SimpleBuildWrapper {
   private Boolean recursive;
   private String naming;
   private String namePrefixes;
+  private List<AwsParameterStorePath> paths;
+  private List<AwsParameterStoreName> names;
+  private Boolean prefetch;
+  private Boolean async;
+  private Integer asyncTimeout;
 
   private transient AwsParameterStoreService parameterStoreService;
 
@@ -211,10 +222,175 @@ public class AwsParameterStoreBuildWrapper extends SimpleBuildWrapper {
     this.namePrefixes = StringUtils.stripToNull(namePrefixes);
   }
 
+  /**
+   * Gets the additional hierarchies.
+   * @return hierarchies, never <code>null</code>
+   */
+  public List<AwsParameterStorePath> getPaths() {
+    return paths == null ? Collections.<AwsParameterStorePath>emptyList() : paths;
+  }
+
+  /**
+   * Sets additional hierarchies, each with its own recursive and naming settings. They are
+   * fetched concurrently after <code>path</code>, and later hierarchies take precedence.
+   *
+   * @param paths  hierarchies
+   */
+  @DataBoundSetter
+  public void setPaths(List<AwsParameterStorePath> paths) {
+    this.paths = paths == null || paths.isEmpty() ? null : new ArrayList<AwsParameterStorePath>(paths);
+  }
+
+  /**
+   * Gets the parameters fetched by name.
+   * @return parameter names, never <code>null</code>
+   */
+  public List<AwsParameterStoreName> getNames() {
+    return names == null ? Collections.<AwsParameterStoreName>emptyList() : names;
+  }
+
+  /**
+   * Sets parameters to fetch by name, each with its own naming settings. They are fetched
+   * without listing parameters first, and take precedence over parameters from hierarchies.
+   *
+   * @param names  parameter names
+   */
+  @DataBoundSetter
+  public void setNames(List<AwsParameterStoreName> names) {
+    this.names = names == null || names.isEmpty() ? null : new ArrayList<AwsParameterStoreName>(names);
+  }
+
+  /**
+   * Gets prefetch flag.
+   * @return prefetch
+   */
+  public Boolean getPrefetch() {
+    return prefetch;
+  }
+
+  /**
+   * Sets the prefetch flag. When set, parameters are fetched while the build is waiting
+   * in the queue rather than when the build wrapper is set up.
+   *
+   * @param prefetch  prefetch flag
+   */
+  @DataBoundSetter
+  public void setPrefetch(Boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * Returns <code>true</code> if parameters are fetched while the build is waiting in the queue.
+   * @return <code>true</code> if prefetch is enabled
+   */
+  boolean isPrefetch() {
+    return Boolean.TRUE.equals(prefetch);
+  }
+
+  /**
+   * Gets async flag.
+   * @return async
+   */
+  public Boolean getAsync() {
+    return async;
+  }
+
+  /**
+   * Sets the async flag. When set, parameters are fetched from the start of the build,
+   * alongside the SCM checkout, rather than when the build wrapper is set up.
+   *
+   * @param async  async flag
+   */
+  @DataBoundSetter
+  public void setAsync(Boolean async) {
+    this.async = async;
+  }
+
+  /**
+   * Returns <code>true</code> if parameters are fetched from the start of the build.
+   * @return <code>true</code> if async is enabled
+   */
+  boolean isAsync() {
+    return Boolean.TRUE.equals(async);
+  }
+
+  /**
+   * Gets async timeout.
+   * @return seconds to wait for parameters fetched before set up
+   */
+  public Integer getAsyncTimeout() {
+    return asyncTimeout;
+  }
+
+  /**
+   * Sets the number of seconds that set up waits for parameters fetched by <code>prefetch</code>
+   * or <code>async</code> before fetching them itself.
+   *
+   * @param asyncTimeout  async timeout in seconds
+   */
+  @DataBoundSetter
+  public void setAsyncTimeout(Integer asyncTimeout) {
+    this.asyncTimeout = asyncTimeout == null || asyncTimeout.intValue() <= 0 ? null : asyncTimeout;
+  }
+
   @Override
   public void setUp(Context context, Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener, EnvVars initialEnvironment) throws IOException, InterruptedException {
+    final AwsParameterStoreAction action = AwsParameterStoreAction.get(run);
+    final Map<String,String> prefetched = run == null ? null : Prefetcher.take(run.getQueueId(), this,
+      asyncTimeout == null ? DEFAULT_ASYNC_TIMEOUT : asyncTimeout.intValue(), action);
+    if(prefetched != null && !usesEnvironmentCredentials(initialEnvironment)) {
+      for(Map.Entry<String,String> entry : prefetched.entrySet()) {
+        context.env(entry.getKey(), entry.getValue());
+      }
+    } else {
+      buildEnvVars(context, initialEnvironment, action);
+    }
+  }
+
+  /**
+   * Adds environment variables to <code>context</code> for this build wrapper's configuration.
+   *
+   * @param context  SimpleBuildWrapper context
+   * @param env      execution environment variables
+   * @param action   action to record what happened, or <code>null</code>
+   */
+  void buildEnvVars(Context context, Map<String,String> env, AwsParameterStoreAction action) {
     AwsParameterStoreService awsParameterStoreService = new AwsParameterStoreService(credentialsId, regionName);
-    awsParameterStoreService.buildEnvVars(context, initialEnvironment, path, recursive, naming, namePrefixes);
+    awsParameterStoreService.setAction(action);
+    if(paths == null && names == null) {
+      awsParameterStoreService.buildEnvVars(context, env, path, recursive, naming, namePrefixes);
+    } else {
+      if(path == null && namePrefixes != null) {
+        awsParameterStoreService.buildEnvVars(context, env, null, recursive, naming, namePrefixes);
+      }
+      awsParameterStoreService.buildEnvVars(context, env, getAllPaths());
+      awsParameterStoreService.buildEnvVarsWithNames(context, env, getNames());
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if credentials come from <code>AWS_ACCESS_KEY_ID</code> and
+   * <code>AWS_SECRET_ACCESS_KEY</code> in <code>env</code>, which a prefetch cannot see.
+   */
+  private boolean usesEnvironmentCredentials(Map<String,String> env) {
+    return StringUtils.isEmpty(credentialsId) && env != null &&
+      env.containsKey("AWS_ACCESS_KEY_ID") && env.containsKey("AWS_SECRET_ACCESS_KEY");
+  }
+
+  /**
+   * Gets <code>path</code>, if set, followed by the additional hierarchies.
+   * @return hierarchies in order of precedence, lowest first
+   */
+  private List<AwsParameterStorePath> getAllPaths() {
+    final List<AwsParameterStorePath> allPaths = new ArrayList<AwsParameterStorePath>();
+    if(path != null) {
+      final AwsParameterStorePath awsParameterStorePath = new AwsParameterStorePath(path);
+      awsParameterStorePath.setRecursive(recursive);
+      awsParameterStorePath.setNaming(naming);
+      allPaths.add(awsParameterStorePath);
+    }
+    allPaths.addAll(getPaths());
+    return allPaths;
   }
 
   /**
@@ -0,0 +1,307 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+
+import net.sf.json.JSONObject;
+
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+import org.jenkinsci.Symbol;
+
+/**
+ * Controller-wide settings for the AWS Parameter Store plugin.
+ *
+ * @author Rik Turnbull
+ *
+ */
+@Extension @Symbol("awsParameterStore")
+public class AwsParameterStoreConfiguration extends GlobalConfiguration {
+
+  public static final int DEFAULT_CACHE_TTL = 0;
+  public static final int DEFAULT_CACHE_MAX_SIZE = 16384;
+  public static final int DEFAULT_CACHE_STALE_WHILE_REVALIDATE = 0;
+  public static final int DEFAULT_CACHE_STALE_IF_ERROR = 0;
+  public static final int DEFAULT_CACHE_PERSISTENT_MAX_AGE = 0;
+  public static final int DEFAULT_NEGATIVE_CACHE_TTL = 0;
+
+  private int cacheTtl = DEFAULT_CACHE_TTL;
+  private int cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+  private int cacheStaleWhileRevalidate = DEFAULT_CACHE_STALE_WHILE_REVALIDATE;
+  private int cacheStaleIfError = DEFAULT_CACHE_STALE_IF_ERROR;
+  private int cachePersistentMaxAge = DEFAULT_CACHE_PERSISTENT_MAX_AGE;
+  private int negativeCacheTtl = DEFAULT_NEGATIVE_CACHE_TTL;
+  private String endpointUrl;
+
+  /**
+   * Creates a new {@link AwsParameterStoreConfiguration} and loads any saved settings.
+   */
+  public AwsParameterStoreConfiguration() {
+    load();
+    applyLimits();
+  }
+
+  /**
+   * Gets the {@link AwsParameterStoreConfiguration} singleton.
+   * @return configuration or <code>null</code> if Jenkins is not running
+   */
+  public static AwsParameterStoreConfiguration get() {
+    Jenkins jenkins = Jenkins.getInstance();
+    return jenkins == null ? null : jenkins.getDescriptorByType(AwsParameterStoreConfiguration.class);
+  }
+
+  /**
+   * Gets the parameter cache time to live in seconds; zero disables the cache.
+   * @return cache time to live in seconds
+   */
+  public int getCacheTtl() {
+    return cacheTtl;
+  }
+
+  /**
+   * Sets the parameter cache time to live in seconds.
+   *
+   * @param cacheTtl  cache time to live in seconds, zero to disable
+   */
+  @DataBoundSetter
+  public void setCacheTtl(int cacheTtl) {
+    this.cacheTtl = Math.max(0, cacheTtl);
+  }
+
+  /**
+   * Gets the maximum parameter cache size in kilobytes.
+   * @return maximum cache size in kilobytes
+   */
+  public int getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  /**
+   * Sets the maximum parameter cache size in kilobytes.
+   *
+   * @param cacheMaxSize  maximum cache size in kilobytes
+   */
+  @DataBoundSetter
+  public void setCacheMaxSize(int cacheMaxSize) {
+    this.cacheMaxSize = Math.max(0, cacheMaxSize);
+  }
+
+  /**
+   * Gets the number of seconds after expiry that cached parameters are served while they are refreshed.
+   * @return stale-while-revalidate window in seconds
+   */
+  public int getCacheStaleWhileRevalidate() {
+    return cacheStaleWhileRevalidate;
+  }
+
+  /**
+   * Sets the number of seconds after expiry that cached parameters are served while they are refreshed.
+   *
+   * @param cacheStaleWhileRevalidate  stale-while-revalidate window in seconds, zero to disable
+   */
+  @DataBoundSetter
+  public void setCacheStaleWhileRevalidate(int cacheStaleWhileRevalidate) {
+    this.cacheStaleWhileRevalidate = Math.max(0, cacheStaleWhileRevalidate);
+  }
+
+  /**
+   * Gets the number of seconds after expiry that cached parameters are served if they cannot be refreshed.
+   * @return stale-if-error window in seconds
+   */
+  public int getCacheStaleIfError() {
+    return cacheStaleIfError;
+  }
+
+  /**
+   * Sets the number of seconds after expiry that cached parameters are served if they cannot be refreshed.
+   *
+   * @param cacheStaleIfError  stale-if-error window in seconds, zero to disable
+   */
+  @DataBoundSetter
+  public void setCacheStaleIfError(int cacheStaleIfError) {
+    this.cacheStaleIfError = Math.max(0, cacheStaleIfError);
+  }
+
+  /**
+   * Gets the number of seconds that cached parameters saved to disk may be used after a restart.
+   * @return maximum age of saved parameters in seconds
+   */
+  public int getCachePersistentMaxAge() {
+    return cachePersistentMaxAge;
+  }
+
+  /**
+   * Sets the number of seconds that cached parameters saved to disk may be used after a restart.
+   *
+   * @param cachePersistentMaxAge  maximum age of saved parameters in seconds, zero to not save parameters
+   */
+  @DataBoundSetter
+  public void setCachePersistentMaxAge(int cachePersistentMaxAge) {
+    this.cachePersistentMaxAge = Math.max(0, cachePersistentMaxAge);
+  }
+
+  /**
+   * Gets the number of seconds that parameters which could not be fetched are skipped; zero disables the negative cache.
+   * @return negative cache time to live in seconds
+   */
+  public int getNegativeCacheTtl() {
+    return negativeCacheTtl;
+  }
+
+  /**
+   * Sets the number of seconds that parameters which could not be fetched are skipped.
+   *
+   * @param negativeCacheTtl  negative cache time to live in seconds, zero to disable
+   */
+  @DataBoundSetter
+  public void setNegativeCacheTtl(int negativeCacheTtl) {
+    this.negativeCacheTtl = Math.max(0, negativeCacheTtl);
+  }
+
+  /**
+   * Gets the AWS Parameter Store endpoint used instead of the regional endpoint.
+   * @return endpoint URL or <code>null</code> for the regional endpoint
+   */
+  public String getEndpointUrl() {
+    return endpointUrl;
+  }
+
+  /**
+   * Sets the AWS Parameter Store endpoint used instead of the regional endpoint, e.g. a VPC endpoint.
+   *
+   * @param endpointUrl  endpoint URL, empty for the regional endpoint
+   */
+  @DataBoundSetter
+  public void setEndpointUrl(String endpointUrl) {
+    this.endpointUrl = Util.fixEmptyAndTrim(endpointUrl);
+  }
+
+  @Override
+  public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+    req.bindJSON(this, json);
+    save();
+    applyLimits();
+    return true;
+  }
+
+  /**
+   * Applies the cache settings to the {@link ParameterCache} and the endpoint to the {@link ClientRegistry}.
+   */
+  private void applyLimits() {
+    ParameterCache.get().setLimits(cacheTtl, cacheMaxSize);
+    ParameterCache.get().setStaleLimits(cacheStaleWhileRevalidate, cacheStaleIfError);
+    SnapshotStore.setMaxAge(cachePersistentMaxAge);
+    NegativeCache.get().setTtl(negativeCacheTtl);
+    ClientRegistry.setEndpointUrl(endpointUrl);
+  }
+
+  /**
+   * Validates the cache time to live.
+   * @param value  form value
+   * @return form validation
+   */
+  public FormValidation doCheckCacheTtl(@QueryParameter String value) {
+    return FormValidation.validateNonNegativeInteger(value);
+  }
+
+  /**
+   * Validates the maximum cache size.
+   * @param value  form value
+   * @return form validation
+   */
+  public FormValidation doCheckCacheMaxSize(@QueryParameter String value) {
+    return FormValidation.validateNonNegativeInteger(value);
+  }
+
+  /**
+   * Validates the stale-while-revalidate window.
+   * @param value  form value
+   * @return form validation
+   */
+  public FormValidation doCheckCacheStaleWhileRevalidate(@QueryParameter String value) {
+    return FormValidation.validateNonNegativeInteger(value);
+  }
+
+  /**
+   * Validates the stale-if-error window.
+   * @param value  form value
+   * @return form validation
+   */
+  public FormValidation doCheckCacheStaleIfError(@QueryParameter String value) {
+    return FormValidation.validateNonNegativeInteger(value);
+  }
+
+  /**
+   * Validates the maximum age of saved parameters.
+   * @param value  form value
+   * @return form validation
+   */
+  public FormValidation doCheckCachePersistentMaxAge(@QueryParameter String value) {
+    return FormValidation.validateNonNegativeInteger(value);
+  }
+
+  /**
+   * Validates the negative cache time to live.
+   * @param value  form value
+   * @return form validation
+   */
+  public FormValidation doCheckNegativeCacheTtl(@QueryParameter String value) {
+    return FormValidation.validateNonNegativeInteger(value);
+  }
+
+  /**
+   * Validates the endpoint URL.
+   * @param value  form value
+   * @return form validation
+   */
+  public FormValidation doCheckEndpointUrl(@QueryParameter String value) {
+    final String endpointUrl = Util.fixEmptyAndTrim(value);
+    if(endpointUrl == null) {
+      return FormValidation.ok();
+    }
+    try {
+      final URL url = new URL(endpointUrl);
+      if(!"https".equals(url.getProtocol()) && !"http".equals(url.getProtocol())) {
+        return FormValidation.error("Endpoint must be an http or https URL");
+      }
+      if(url.getHost().isEmpty()) {
+        return FormValidation.error("Endpoint must include a host");
+      }
+      return FormValidation.ok();
+    } catch(MalformedURLException e) {
+      return FormValidation.error("Invalid endpoint: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import org.jenkinsci.Symbol;
+
+/**
+ * An AWS Parameter Store parameter, fetched by name, with its own naming settings.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class AwsParameterStoreName extends AbstractDescribableImpl<AwsParameterStoreName> {
+
+  private static final Pattern VARIABLE = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+  private final String name;
+  private String naming;
+  private String variable;
+
+  /**
+   * Creates a new {@link AwsParameterStoreName}.
+   *
+   * @param name  parameter name
+   */
+  @DataBoundConstructor
+  public AwsParameterStoreName(String name) {
+    this.name = StringUtils.stripToNull(name);
+  }
+
+  /**
+   * Gets parameter name.
+   * @return parameter name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets naming: basename, absolute.
+   * @return naming.
+   */
+  public String getNaming() {
+    return naming;
+  }
+
+  /**
+   * Sets the naming type: basename, absolute.
+   *
+   * @param naming  the naming type
+   */
+  @DataBoundSetter
+  public void setNaming(String naming) {
+    this.naming = naming;
+  }
+
+  /**
+   * Gets the environment variable name, overriding <code>naming</code>.
+   * @return environment variable name
+   */
+  public String getVariable() {
+    return variable;
+  }
+
+  /**
+   * Sets the environment variable name, overriding <code>naming</code>.
+   *
+   * @param variable  environment variable name
+   */
+  @DataBoundSetter
+  public void setVariable(String variable) {
+    this.variable = StringUtils.stripToNull(variable);
+  }
+
+  /**
+   * Checks whether <code>variable</code>, if it is set, is a valid environment variable name.
+   * @return <code>true</code> if <code>variable</code> is not set or is valid
+   */
+  boolean hasValidVariable() {
+    return variable == null || VARIABLE.matcher(variable).matches();
+  }
+
+  /**
+   * Gets the environment variable name for the parameter: <code>variable</code> if it is set,
+   * otherwise the name after the last '/' for <code>basename</code> or the whole name.
+   *
+   * @return environment variable name
+   */
+  String getEnvironmentVariable() {
+    if(variable != null) {
+      return variable;
+    }
+    return AwsParameterStoreService.NAMING_BASENAME.equals(naming) ?
+      AwsParameterStoreService.toEnvironmentVariable(name, "", naming) :
+      AwsParameterStoreService.toEnvironmentVariable(name, null, null);
+  }
+
+  /**
+   * A Jenkins <code>Descriptor</code> for the {@link AwsParameterStoreName}.
+   *
+   * @author Rik Turnbull
+   *
+   */
+  @Extension @Symbol("awsParameterStoreName")
+  public static final class DescriptorImpl extends Descriptor<AwsParameterStoreName> {
+    @Override
+    public String getDisplayName() {
+      return Messages.nameDisplayName();
+    }
+
+    /**
+     * Validates the environment variable name.
+     * @param value  form value
+     * @return form validation
+     */
+    public FormValidation doCheckVariable(@QueryParameter String value) {
+      final String variable = StringUtils.stripToNull(value);
+      if(variable != null && !VARIABLE.matcher(variable).matches()) {
+        return FormValidation.error(Messages.invalidVariable(variable));
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Returns a list of naming options: basename, absolute.
+     * @return {@link ListBoxModel} populated with naming options
+     */
+    public ListBoxModel doFillNamingItems() {
+      final ListBoxModel options = new ListBoxModel();
+      options.add("- select -", null);
+      options.add(AwsParameterStoreService.NAMING_BASENAME);
+      options.add(AwsParameterStoreService.NAMING_ABSOLUTE);
+      return options;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.ListBoxModel;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import org.jenkinsci.Symbol;
+
+/**
+ * An AWS Parameter Store hierarchy with its own recursive and naming settings.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class AwsParameterStorePath extends AbstractDescribableImpl<AwsParameterStorePath> {
+
+  private final String path;
+  private Boolean recursive;
+  private String naming;
+
+  /**
+   * Creates a new {@link AwsParameterStorePath}.
+   *
+   * @param path  hierarchy for the parameters
+   */
+  @DataBoundConstructor
+  public AwsParameterStorePath(String path) {
+    this.path = StringUtils.stripToNull(path);
+  }
+
+  /**
+   * Gets path.
+   * @return path
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Gets recursive flag.
+   * @return recursive
+   */
+  public Boolean getRecursive() {
+    return recursive;
+  }
+
+  /**
+   * Sets the recursive flag.
+   *
+   * @param recursive  recursive flag
+   */
+  @DataBoundSetter
+  public void setRecursive(Boolean recursive) {
+    this.recursive = recursive;
+  }
+
+  /**
+   * Gets naming: basename, absolute, relative.
+   * @return naming.
+   */
+  public String getNaming() {
+    return naming;
+  }
+
+  /**
+   * Sets the naming type: basename, absolute, relative.
+   *
+   * @param naming  the naming type
+   */
+  @DataBoundSetter
+  public void setNaming(String naming) {
+    this.naming = naming;
+  }
+
+  /**
+   * Checks whether every parameter of <code>other</code> is also a parameter of this hierarchy,
+   * so that <code>other</code> does not need to be fetched separately.
+   *
+   * @param other  another hierarchy
+   * @return <code>true</code> if this hierarchy covers <code>other</code>
+   */
+  boolean covers(AwsParameterStorePath other) {
+    final String prefix = getPrefix();
+    final String otherPrefix = other.getPrefix();
+    if(prefix.equals(otherPrefix)) {
+      return isRecursive() || !other.isRecursive();
+    }
+    return isRecursive() && otherPrefix.startsWith(prefix);
+  }
+
+  /**
+   * Checks whether <code>name</code> is a parameter of this hierarchy.
+   *
+   * @param name  parameter name
+   * @return <code>true</code> if <code>name</code> is within this hierarchy
+   */
+  boolean contains(String name) {
+    final String prefix = getPrefix();
+    return name.startsWith(prefix) && (isRecursive() || name.indexOf('/', prefix.length()) < 0);
+  }
+
+  /**
+   * Gets the recursive flag as a primitive.
+   */
+  boolean isRecursive() {
+    return Boolean.TRUE.equals(recursive);
+  }
+
+  /**
+   * Gets the path with a trailing '/'.
+   */
+  private String getPrefix() {
+    return path.endsWith("/") ? path : path + "/";
+  }
+
+  /**
+   * A Jenkins <code>Descriptor</code> for the {@link AwsParameterStorePath}.
+   *
+   * @author Rik Turnbull
+   *
+   */
+  @Extension @Symbol("awsParameterStorePath")
+  public static final class DescriptorImpl extends Descriptor<AwsParameterStorePath> {
+    @Override
+    public String getDisplayName() {
+      return Messages.pathDisplayName();
+    }
+
+    /**
+     * Returns a list of naming options: basename, absolute, relative.
+     * @return {@link ListBoxModel} populated with naming options
+     */
+    public ListBoxModel doFillNamingItems() {
+      final ListBoxModel options = new ListBoxModel();
+      options.add("- select -", null);
+      options.add(AwsParameterStoreService.NAMING_BASENAME);
+      options.add(AwsParameterStoreService.NAMING_RELATIVE);
+      options.add(AwsParameterStoreService.NAMING_ABSOLUTE);
+      return options;
+    }
+  }
+}
@@ -24,12 +24,23 @@
 package hudson.plugins.awsparameterstore;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.amazonaws.ClientConfiguration;
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
@@ -38,12 +49,12 @@ import com.amazonaws.auth.BasicSessionCredentials;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.RegionUtils;
 import com.amazonaws.regions.Regions;
-import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
-import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagementClient;
 import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
 import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
@@ -53,15 +64,13 @@ import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilte
 import com.cloudbees.jenkins.plugins.awscredentials.AWSCredentialsHelper;
 import com.cloudbees.jenkins.plugins.awscredentials.AmazonWebServicesCredentials;
 
-import hudson.ProxyConfiguration;
-
 import jenkins.model.Jenkins;
 import jenkins.tasks.SimpleBuildWrapper;
 
 import org.apache.commons.lang.StringUtils;
 
 /**
- * AWS Parameter Store client.
+ * AWS Parameter Store client. Parameters are fetched from a {@link ParameterSource}.
  *
  * @author Rik Turnbull
  *
@@ -76,12 +85,22 @@ public class AwsParameterStoreService {
   private static final String AWS_SECRET_ACCESS_KEY = "AWS_SECRET_ACCESS_KEY";
   private static final String AWS_SESSION_TOKEN = "AWS_SESSION_TOKEN";
 
+  private static final int DESCRIBE_PARAMETERS_MAX_RESULTS = 50;
+  static final int GET_PARAMETERS_MAX_NAMES = 10;
+
   private static final Logger LOGGER = Logger.getLogger(AwsParameterStoreService.class.getName());
 
-  private AWSSimpleSystemsManagement client;
+  private static final SingleFlight<PathKey,ParameterSnapshot> PATH_FETCHES = new SingleFlight<PathKey,ParameterSnapshot>();
+
+  private static final Set<PathKey> PATH_REFRESHES = Collections.newSetFromMap(new ConcurrentHashMap<PathKey,Boolean>());
 
   private String credentialsId;
   private String regionName;
+  private AwsParameterStoreAction action;
+  private FetchTelemetry telemetry = new FetchTelemetry();
+
+  private final ParameterSource parameterSource;
+  private final RetryBudget retryBudget = new RetryBudget();
 
   /**
    * Creates a new {@link AwsParameterStoreService}.
@@ -90,52 +109,107 @@ public class AwsParameterStoreService {
    * @param regionName     AWS region name
    */
   public AwsParameterStoreService(String credentialsId, String regionName) {
+    this(credentialsId, regionName, null);
+  }
+
+  /**
+   * Creates a new {@link AwsParameterStoreService} that fetches parameters from <code>parameterSource</code>.
+   *
+   * @param credentialsId    AWS credentials identifier
+   * @param regionName       AWS region name
+   * @param parameterSource  parameter source, or <code>null</code> for {@link ParameterSource#get()}
+   */
+  AwsParameterStoreService(String credentialsId, String regionName, ParameterSource parameterSource) {
     this.credentialsId = credentialsId;
     this.regionName = StringUtils.defaultString(regionName, DEFAULT_REGION);
+    this.parameterSource = parameterSource;
   }
 
   /**
-   * Returns an {@link AWSSimpleSystemsManagement}.
-   * @param env execution environment variables
+   * Gets the parameter source.
+   * @return the injected parameter source, otherwise {@link ParameterSource#get()}
+   */
+  private ParameterSource getParameterSource() {
+    return parameterSource == null ? ParameterSource.get() : parameterSource;
+  }
+
+  /**
+   * Sets the action that records what happened when parameters were fetched.
    *
-   * @return {@link AWSSimpleSystemsManagement} singleton using the <code>credentialsId</code>
-   * and <code>regionName</code>
+   * @param action  build action, or <code>null</code> not to record anything
    */
-  private synchronized AWSSimpleSystemsManagement getAWSSimpleSystemsManagement(Map<String,String> env) {
-    if(client == null) {
-      ClientConfiguration clientConfiguration = new ClientConfiguration();
-      Jenkins jenkins = Jenkins.getInstance();
-      if(jenkins != null) {
-        ProxyConfiguration proxy = jenkins.proxy;
-        if(proxy != null) {
-          clientConfiguration.setProxyHost(proxy.name);
-          clientConfiguration.setProxyPort(proxy.port);
-          clientConfiguration.setProxyUsername(proxy.getUserName());
-          clientConfiguration.setProxyPassword(proxy.getPassword());
-        }
-      }
+  void setAction(AwsParameterStoreAction action) {
+    this.action = action;
+    this.telemetry = action == null ? new FetchTelemetry() : action.getTelemetry();
+  }
 
-      // try and use either credentials provider from Jenkins or environment variables
-      // otherwise fallback to default AWS credential chain from Jenkins master
-      AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
-      if(credentialsProvider == null) {
-        client = AWSSimpleSystemsManagementClient.
-                   builder().
-                   withClientConfiguration(clientConfiguration).
-                   withRegion(regionName).
-                   build();
-      } else {
-        client = AWSSimpleSystemsManagementClient.
-                   builder().
-                   withCredentials(credentialsProvider).
-                   withClientConfiguration(clientConfiguration).
-                   withRegion(regionName).
-                   build();
-      }
+  /**
+   * Returns a {@link ParameterStoreClient} using a client from the {@link ParameterSource}.
+   * @param credentialsProvider AWS credentials provider or <code>null</code> for the default chain
+   * @param credentialsIdentity identity of <code>credentialsProvider</code>
+   *
+   * @return {@link ParameterStoreClient} for the credentials and <code>regionName</code>
+   */
+  private ParameterStoreClient getParameterStoreClient(AWSCredentialsProvider credentialsProvider, String credentialsIdentity) {
+    return getParameterStoreClient(credentialsProvider, credentialsIdentity, retryBudget, telemetry);
+  }
+
+  /**
+   * Returns a {@link ParameterStoreClient} using a client from the {@link ParameterSource}.
+   * @param credentialsProvider AWS credentials provider or <code>null</code> for the default chain
+   * @param credentialsIdentity identity of <code>credentialsProvider</code>
+   * @param retryBudget         retry budget for calls made by the client
+   * @param telemetry           telemetry for calls made by the client, or <code>null</code>
+   *
+   * @return {@link ParameterStoreClient} for the credentials and <code>regionName</code>
+   */
+  private ParameterStoreClient getParameterStoreClient(AWSCredentialsProvider credentialsProvider, String credentialsIdentity, RetryBudget retryBudget, FetchTelemetry telemetry) {
+    final long start = System.nanoTime();
+    final ParameterStoreClient client = new ParameterStoreClient(
+      getParameterSource().getClient(credentialsProvider, credentialsIdentity, regionName),
+      regionName,
+      RateLimiter.get(getRateLimitIdentity(credentialsIdentity), regionName),
+      CircuitBreaker.get(ClientRegistry.getEndpoint(regionName)),
+      retryBudget,
+      telemetry);
+    if(telemetry != null) {
+      telemetry.addTime(FetchTelemetry.Phase.CLIENT, start);
     }
     return client;
   }
 
+  /**
+   * Gets a stable identity for the credentials in use, without exposing any secrets.
+   *
+   * @param env execution environment variables
+   * @param credentialsProvider AWS credentials provider or <code>null</code> for the default chain
+   * @return credentials identity
+   */
+  private String getCredentialsIdentity(Map<String,String> env, AWSCredentialsProvider credentialsProvider) {
+    if(credentialsProvider == null) {
+      return "default";
+    } else if(StringUtils.isEmpty(credentialsId)) {
+      return "environment:" + env.get(AWS_ACCESS_KEY_ID) + ":" +
+        Digests.sha256(env.get(AWS_SECRET_ACCESS_KEY), env.get(AWS_SESSION_TOKEN));
+    } else {
+      return "credentials:" + credentialsId;
+    }
+  }
+
+  /**
+   * Gets the identity that rate limiters are shared by: environment credentials by access key only,
+   * so that a rotated secret or session token does not get a limiter of its own.
+   *
+   * @param credentialsIdentity identity from {@link #getCredentialsIdentity(Map, AWSCredentialsProvider)}
+   * @return rate limiter identity
+   */
+  static String getRateLimitIdentity(String credentialsIdentity) {
+    if(credentialsIdentity.startsWith("environment:")) {
+      return credentialsIdentity.substring(0, credentialsIdentity.lastIndexOf(':'));
+    }
+    return credentialsIdentity;
+  }
+
   /**
    * Gets AWS credentials provider. If a Jenkins credentialsId is supplied, use
    * inbuilt Jenkins provider, if AWS_ACCESS_KEY_ID and AWS_SECRET_ACCESS_KEY are
@@ -193,46 +267,445 @@ public class AwsParameterStoreService {
     }
   }
 
+  /**
+   * Adds environment variables to <code>context</code> from several hierarchies. The hierarchies are
+   * fetched concurrently, and a hierarchy that is covered by another (for example <code>/service/app</code>
+   * and a recursive <code>/service</code>) is taken from the covering fetch rather than fetched again.
+   * Variables are added in the order of <code>paths</code>, so where two hierarchies produce the same
+   * variable name the later hierarchy takes precedence.
+   *
+   * @param context  SimpleBuildWrapper context
+   * @param env      execution environment variables
+   * @param paths    hierarchies with their recursive and naming settings
+   */
+  public void buildEnvVars(SimpleBuildWrapper.Context context, Map<String,String> env, List<AwsParameterStorePath> paths) {
+    final List<AwsParameterStorePath> entries = new ArrayList<AwsParameterStorePath>();
+    for(AwsParameterStorePath path : paths) {
+      if(path != null && path.getPath() != null) {
+        entries.add(path);
+      }
+    }
+    if(entries.isEmpty()) {
+      return;
+    }
+
+    final long credentialsStart = System.nanoTime();
+    final AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
+    final String credentialsIdentity = getCredentialsIdentity(env, credentialsProvider);
+    telemetry.addTime(FetchTelemetry.Phase.CREDENTIALS, credentialsStart);
+
+    // fetch each hierarchy that is not covered by another, and remember which fetch covers each entry
+    final List<AwsParameterStorePath> fetches = new ArrayList<AwsParameterStorePath>();
+    final Map<AwsParameterStorePath,AwsParameterStorePath> coveredBy = new HashMap<AwsParameterStorePath,AwsParameterStorePath>();
+    for(AwsParameterStorePath entry : entries) {
+      AwsParameterStorePath cover = entry;
+      for(AwsParameterStorePath other : entries) {
+        if(other != entry && other.covers(entry) && !(entry.covers(other) && entries.indexOf(entry) < entries.indexOf(other))) {
+          cover = other;
+          break;
+        }
+      }
+      coveredBy.put(entry, cover);
+      if(cover == entry) {
+        fetches.add(entry);
+      }
+    }
+    for(AwsParameterStorePath entry : entries) {
+      AwsParameterStorePath cover = coveredBy.get(entry);
+      while(coveredBy.get(cover) != cover) {
+        cover = coveredBy.get(cover);
+      }
+      coveredBy.put(entry, cover);
+    }
+
+    final Map<AwsParameterStorePath,Future<List<Parameter>>> results = new HashMap<AwsParameterStorePath,Future<List<Parameter>>>();
+    for(final AwsParameterStorePath fetch : fetches) {
+      results.put(fetch, FetchExecutor.submit(new Callable<List<Parameter>>() {
+        @Override
+        public List<Parameter> call() throws Exception {
+          return getParametersByPath(credentialsProvider, credentialsIdentity, fetch.getPath(), fetch.isRecursive());
+        }
+      }));
+    }
+
+    for(AwsParameterStorePath entry : entries) {
+      final List<Parameter> parameters;
+      final long fetchStart = System.nanoTime();
+      try {
+        parameters = results.get(coveredBy.get(entry)).get();
+      } catch(InterruptedException e) {
+        LOGGER.log(Level.WARNING, "Interrupted while fetching parameters", e);
+        Thread.currentThread().interrupt();
+        return;
+      } catch(ExecutionException e) {
+        LOGGER.log(Level.WARNING, "Cannot fetch parameters by path: " + entry.getPath() + ": " + e.getCause().getMessage(), e.getCause());
+        addUnavailableParameter(entry.getPath(), e.getCause().getMessage(), false);
+        continue;
+      } finally {
+        telemetry.addTime(FetchTelemetry.Phase.FETCH, fetchStart);
+      }
+      final long injectStart = System.nanoTime();
+      for(Parameter parameter : parameters) {
+        if(entry.contains(parameter.getName())) {
+          addToEnvironment(context, toEnvironmentVariable(parameter.getName(), entry.getPath(), entry.getNaming()), parameter.getValue());
+        }
+      }
+      telemetry.addTime(FetchTelemetry.Phase.INJECT, injectStart);
+    }
+  }
+
+  /**
+   * Adds environment variables to <code>context</code> for parameters fetched by name, without listing
+   * them first. The names are fetched concurrently using <code>getParameters</code>, in batches of up to
+   * {@value #GET_PARAMETERS_MAX_NAMES} names, and variables are added in the order of <code>names</code>.
+   * Names whose <code>variable</code> is not a valid environment variable name are skipped.
+   *
+   * @param context  SimpleBuildWrapper context
+   * @param env      execution environment variables
+   * @param names    parameter names with their naming settings
+   */
+  public void buildEnvVarsWithNames(SimpleBuildWrapper.Context context, Map<String,String> env, List<AwsParameterStoreName> names) {
+    final Set<String> parameterNames = new LinkedHashSet<String>();
+    for(AwsParameterStoreName name : names) {
+      if(name == null || name.getName() == null) {
+        continue;
+      }
+      if(name.hasValidVariable()) {
+        parameterNames.add(name.getName());
+      } else {
+        LOGGER.log(Level.WARNING, "Cannot add parameter: \"" + name.getName() + "\" (invalid variable name: " + name.getVariable() + ")");
+        addUnavailableParameter(name.getName(), "invalid variable name: " + name.getVariable(), false);
+      }
+    }
+    if(parameterNames.isEmpty()) {
+      return;
+    }
+
+    final long credentialsStart = System.nanoTime();
+    final AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
+    final String credentialsIdentity = getCredentialsIdentity(env, credentialsProvider);
+    telemetry.addTime(FetchTelemetry.Phase.CREDENTIALS, credentialsStart);
+    final ParameterStoreClient client = getParameterStoreClient(credentialsProvider, credentialsIdentity);
+
+    final List<String> fetchNames = new ArrayList<String>(parameterNames);
+    final List<Future<Map<String,String>>> batches = new ArrayList<Future<Map<String,String>>>();
+    for(int i = 0; i < fetchNames.size(); i += GET_PARAMETERS_MAX_NAMES) {
+      final List<String> batch = fetchNames.subList(i, Math.min(i + GET_PARAMETERS_MAX_NAMES, fetchNames.size()));
+      batches.add(FetchExecutor.submit(new Callable<Map<String,String>>() {
+        @Override
+        public Map<String,String> call() {
+          return getParameterValues(client, credentialsIdentity, batch);
+        }
+      }));
+    }
+
+    final long fetchStart = System.nanoTime();
+    final Map<String,String> values = new HashMap<String,String>();
+    for(Future<Map<String,String>> batch : batches) {
+      try {
+        values.putAll(batch.get());
+      } catch(InterruptedException e) {
+        LOGGER.log(Level.WARNING, "Interrupted while fetching parameters", e);
+        Thread.currentThread().interrupt();
+        break;
+      } catch(ExecutionException e) {
+        LOGGER.log(Level.WARNING, "Cannot fetch parameters: " + e.getMessage(), e);
+      }
+    }
+    telemetry.addTime(FetchTelemetry.Phase.FETCH, fetchStart);
+
+    final long injectStart = System.nanoTime();
+    for(AwsParameterStoreName name : names) {
+      if(name != null && name.hasValidVariable() && values.containsKey(name.getName())) {
+        addToEnvironment(context, name.getEnvironmentVariable(), values.get(name.getName()));
+      }
+    }
+    telemetry.addTime(FetchTelemetry.Phase.INJECT, injectStart);
+  }
+
   /**
    * Adds environment variables to <code>context</code> using <code>describeParameters</code>.
+   * Each page of names is handed to a background fetch as soon as it is listed, so values
+   * are fetched while the next page is still being described.
    *
    * @param context       SimpleBuildWrapper context
    * @param env           execution environment variables
    * @param namePrefixes  filter parameters by Name with beginsWith filter
    */
   private void buildEnvVarsWithParameters(SimpleBuildWrapper.Context context, Map<String,String> env, String namePrefixes) {
-    final AWSSimpleSystemsManagement client = getAWSSimpleSystemsManagement(env);
+    // try and use either credentials provider from Jenkins or environment variables
+    // otherwise fallback to default AWS credential chain from Jenkins master
+    final long credentialsStart = System.nanoTime();
+    final AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
+    final String credentialsIdentity = getCredentialsIdentity(env, credentialsProvider);
+    telemetry.addTime(FetchTelemetry.Phase.CREDENTIALS, credentialsStart);
+    final ParameterStoreClient client = getParameterStoreClient(credentialsProvider, credentialsIdentity);
     final List<String> names = new ArrayList<String>();
+    final List<Future<Map<String,String>>> pages = new ArrayList<Future<Map<String,String>>>();
 
+    final long listStart = System.nanoTime();
     try {
-      DescribeParametersRequest describeParametersRequest = new DescribeParametersRequest().withMaxResults(1);
+      DescribeParametersRequest describeParametersRequest = new DescribeParametersRequest().withMaxResults(DESCRIBE_PARAMETERS_MAX_RESULTS);
       if (!StringUtils.isEmpty(namePrefixes)) {
         describeParametersRequest = describeParametersRequest.withParameterFilters(
                 new ParameterStringFilter().withKey("Name").withOption("BeginsWith").withValues(namePrefixes.split(",")));
       }
 
-
       do {
         final DescribeParametersResult describeParametersResult = client.describeParameters(describeParametersRequest);
+        final List<String> pageNames = new ArrayList<String>();
         for(ParameterMetadata metadata : describeParametersResult.getParameters()) {
-          names.add(metadata.getName());
+          pageNames.add(metadata.getName());
+        }
+        if(!pageNames.isEmpty()) {
+          names.addAll(pageNames);
+          pages.add(FetchExecutor.submit(new Callable<Map<String,String>>() {
+            @Override
+            public Map<String,String> call() {
+              return getParameterValues(client, credentialsIdentity, pageNames);
+            }
+          }));
         }
         describeParametersRequest.setNextToken(describeParametersResult.getNextToken());
       } while(describeParametersRequest.getNextToken() != null);
     } catch(Exception e) {
       LOGGER.log(Level.WARNING, "Cannot fetch parameters: " + e.getMessage(), e);
     }
+    telemetry.addTime(FetchTelemetry.Phase.LIST, listStart);
+
+    final long fetchStart = System.nanoTime();
+    final Map<String,String> values = new HashMap<String,String>();
+    for(Future<Map<String,String>> page : pages) {
+      try {
+        values.putAll(page.get());
+      } catch(InterruptedException e) {
+        LOGGER.log(Level.WARNING, "Interrupted while fetching parameters", e);
+        Thread.currentThread().interrupt();
+        break;
+      } catch(ExecutionException e) {
+        LOGGER.log(Level.WARNING, "Cannot fetch parameters: " + e.getMessage(), e);
+      }
+    }
+    telemetry.addTime(FetchTelemetry.Phase.FETCH, fetchStart);
 
-    final GetParameterRequest getParameterRequest = new GetParameterRequest().withWithDecryption(true);
+    final long injectStart = System.nanoTime();
     for(String name : names) {
-      getParameterRequest.setName(name);
+      if(values.containsKey(name)) {
+        addToEnvironment(context, toEnvironmentVariable(name), values.get(name));
+      }
+    }
+    telemetry.addTime(FetchTelemetry.Phase.INJECT, injectStart);
+  }
+
+  /**
+   * Lists the parameters in a hierarchy using <code>describeParameters</code>, without fetching
+   * or decrypting their values.
+   *
+   * @param env        execution environment variables
+   * @param path       hierarchy for the parameters
+   * @param recursive  list all parameters within a hierarchy
+   * @param naming     environment variable naming: basename, relative, absolute
+   * @return parameter names by environment variable name, in the order they were listed
+   * @throws Exception if the parameters cannot be listed
+   */
+  Map<String,String> listParametersByPath(Map<String,String> env, String path, boolean recursive, String naming) throws Exception {
+    final long credentialsStart = System.nanoTime();
+    final AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
+    final String credentialsIdentity = getCredentialsIdentity(env, credentialsProvider);
+    telemetry.addTime(FetchTelemetry.Phase.CREDENTIALS, credentialsStart);
+    final ParameterStoreClient client = getParameterStoreClient(credentialsProvider, credentialsIdentity);
+
+    final long listStart = System.nanoTime();
+    try {
+      final Map<String,String> names = new LinkedHashMap<String,String>();
+      final DescribeParametersRequest describeParametersRequest = new DescribeParametersRequest()
+        .withMaxResults(DESCRIBE_PARAMETERS_MAX_RESULTS)
+        .withParameterFilters(new ParameterStringFilter().withKey("Path").withOption(recursive ? "Recursive" : "OneLevel").withValues(PathCrawler.getDescribePath(path)));
+      do {
+        final DescribeParametersResult describeParametersResult = client.describeParameters(describeParametersRequest);
+        for(ParameterMetadata metadata : describeParametersResult.getParameters()) {
+          names.put(toEnvironmentVariable(metadata.getName(), path, naming), metadata.getName());
+        }
+        describeParametersRequest.setNextToken(describeParametersResult.getNextToken());
+      } while(describeParametersRequest.getNextToken() != null);
+      return names;
+    } finally {
+      telemetry.addTime(FetchTelemetry.Phase.LIST, listStart);
+    }
+  }
+
+  /**
+   * Fetches the values of <code>names</code>, see {@link #getParameterValues(ParameterStoreClient, String, List)}.
+   *
+   * @param env    execution environment variables
+   * @param names  parameter names
+   * @return values by parameter name; names that could not be fetched are absent
+   */
+  Map<String,String> getParameterValues(Map<String,String> env, List<String> names) {
+    final long credentialsStart = System.nanoTime();
+    final AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
+    final String credentialsIdentity = getCredentialsIdentity(env, credentialsProvider);
+    telemetry.addTime(FetchTelemetry.Phase.CREDENTIALS, credentialsStart);
+    final ParameterStoreClient client = getParameterStoreClient(credentialsProvider, credentialsIdentity);
+
+    final long fetchStart = System.nanoTime();
+    final Map<String,String> values = getParameterValues(client, credentialsIdentity, names);
+    telemetry.addTime(FetchTelemetry.Phase.FETCH, fetchStart);
+    for(String value : values.values()) {
+      telemetry.addParameter(value);
+    }
+    return values;
+  }
+
+  /**
+   * Fetches the value of one parameter. Lookups for the same credentials and region from concurrent
+   * builds are gathered into batches by the {@link ParameterBatcher}.
+   *
+   * @param env   execution environment variables
+   * @param name  parameter name
+   * @return parameter value, or <code>null</code> if it could not be fetched
+   * @throws Exception if the batch cannot be fetched or the wait was interrupted
+   */
+  String getParameterValue(Map<String,String> env, String name) throws Exception {
+    final long credentialsStart = System.nanoTime();
+    final AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
+    final String credentialsIdentity = getCredentialsIdentity(env, credentialsProvider);
+    telemetry.addTime(FetchTelemetry.Phase.CREDENTIALS, credentialsStart);
+    // a batch holds names from other builds, so it is loaded without this build's budget, telemetry
+    // or action, and each lookup records only what happened to its own name
+    final ParameterStoreClient client = getParameterStoreClient(credentialsProvider, credentialsIdentity, new RetryBudget(), null);
+
+    final long fetchStart = System.nanoTime();
+    final String value;
+    try {
+      value = ParameterBatcher.get().get(credentialsIdentity + "@" + regionName, name, new ParameterBatcher.Loader() {
+        @Override
+        public Map<String,String> load(List<String> names) {
+          return getParameterValues(client, credentialsIdentity, names, null);
+        }
+      });
+    } finally {
+      telemetry.addTime(FetchTelemetry.Phase.FETCH, fetchStart);
+    }
+    if(value != null) {
+      telemetry.addParameter(value);
+    } else {
+      final NegativeCache.Reason reason = NegativeCache.get().get(credentialsIdentity, regionName, name);
+      addUnavailableParameter(name, reason == null ? "not fetched" : reason.toString(), false);
+    }
+    return value;
+  }
+
+  /**
+   * Adds a parameter to the environment, counting it in the {@link FetchTelemetry}.
+   *
+   * @param context              SimpleBuildWrapper context
+   * @param environmentVariable  environment variable name
+   * @param value                parameter value
+   */
+  private void addToEnvironment(SimpleBuildWrapper.Context context, String environmentVariable, String value) {
+    try {
+      context.env(environmentVariable, value);
+      telemetry.addParameter(value);
+    } catch(Exception e) {
+      LOGGER.log(Level.WARNING, "Cannot add parameter to environment: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Fetches the values of <code>names</code> using <code>getParameters</code>, in batches of up to
+   * {@value #GET_PARAMETERS_MAX_NAMES} names. If a batch is rejected by AWS, for example because one
+   * of its names is denied, then each of its names is fetched using <code>getParameter</code> so that
+   * one unreadable parameter does not hide the others. Throttling, server and network errors and an
+   * open circuit breaker are not retried per name, and every name in the batch is unavailable.
+   * Names that are missing, denied or invalid are remembered by the {@link NegativeCache} and
+   * skipped until their entry expires.
+   *
+   * @param client               AWS Parameter Store client
+   * @param credentialsIdentity  identity of the credentials used by <code>client</code>
+   * @param names                parameter names
+   * @return values by parameter name; names that could not be fetched are absent
+   */
+  private Map<String,String> getParameterValues(ParameterStoreClient client, String credentialsIdentity, List<String> names) {
+    return getParameterValues(client, credentialsIdentity, names, action);
+  }
+
+  /**
+   * Fetches the values of <code>names</code> as {@link #getParameterValues(ParameterStoreClient, String, List)}
+   * does, recording names that could not be fetched on <code>action</code>.
+   *
+   * @param client               AWS Parameter Store client
+   * @param credentialsIdentity  identity of the credentials used by <code>client</code>
+   * @param names                parameter names
+   * @param action               action to record unavailable names on, or <code>null</code>
+   * @return values by parameter name; names that could not be fetched are absent
+   */
+  private Map<String,String> getParameterValues(ParameterStoreClient client, String credentialsIdentity, List<String> names, AwsParameterStoreAction action) {
+    final NegativeCache negativeCache = NegativeCache.get();
+    final List<String> fetchNames = new ArrayList<String>();
+    for(String name : names) {
+      final NegativeCache.Reason reason = negativeCache.get(credentialsIdentity, regionName, name);
+      if(reason == null) {
+        fetchNames.add(name);
+      } else {
+        addUnavailableParameter(action, name, reason.toString(), true);
+      }
+    }
+
+    final Map<String,String> values = new HashMap<String,String>();
+    for(int i = 0; i < fetchNames.size(); i += GET_PARAMETERS_MAX_NAMES) {
+      final List<String> batch = fetchNames.subList(i, Math.min(i + GET_PARAMETERS_MAX_NAMES, fetchNames.size()));
       try {
-        context.env(toEnvironmentVariable(name),
-          client.getParameter(getParameterRequest).getParameter().getValue());
+        final GetParametersResult getParametersResult = client.getParameters(
+          new GetParametersRequest().withNames(batch).withWithDecryption(true));
+        for(Parameter parameter : getParametersResult.getParameters()) {
+          values.put(parameter.getName(), parameter.getValue());
+        }
+        for(String name : getParametersResult.getInvalidParameters()) {
+          LOGGER.log(Level.WARNING, "Cannot fetch parameter: \"" + name + "\" (invalid parameter)");
+          negativeCache.put(credentialsIdentity, regionName, name, NegativeCache.Reason.INVALID);
+          addUnavailableParameter(action, name, NegativeCache.Reason.INVALID.toString(), false);
+        }
       } catch(Exception e) {
-        LOGGER.log(Level.WARNING, "Cannot fetch parameter: \"" + name + "\"", e);
+        if(!(e instanceof AmazonServiceException) || AwsErrors.isRetryable(e)) {
+          // the same failure would apply to every name, so fetching them one by one only adds calls
+          LOGGER.log(Level.WARNING, "Cannot fetch parameters: " + e.getMessage(), e);
+          for(String name : batch) {
+            addUnavailableParameter(action, name, e.getMessage(), false);
+          }
+          continue;
+        }
+        LOGGER.log(Level.FINE, "Cannot fetch parameters, fetching individually: " + e.getMessage(), e);
+        final GetParameterRequest getParameterRequest = new GetParameterRequest().withWithDecryption(true);
+        for(String name : batch) {
+          getParameterRequest.setName(name);
+          try {
+            values.put(name, client.getParameter(getParameterRequest).getParameter().getValue());
+          } catch(Exception ex) {
+            LOGGER.log(Level.WARNING, "Cannot fetch parameter: \"" + name + "\"", ex);
+            final NegativeCache.Reason reason = NegativeCache.getReason(ex);
+            if(reason != null) {
+              negativeCache.put(credentialsIdentity, regionName, name, reason);
+            }
+            addUnavailableParameter(action, name, reason == null ? ex.getMessage() : reason.toString(), false);
+          }
+        }
       }
     }
+    return values;
+  }
+
+  /**
+   * Records a parameter that could not be fetched on the {@link AwsParameterStoreAction}, if there is one.
+   */
+  private void addUnavailableParameter(String name, String reason, boolean cached) {
+    addUnavailableParameter(action, name, reason, cached);
+  }
+
+  private static void addUnavailableParameter(AwsParameterStoreAction action, String name, String reason, boolean cached) {
+    if(action != null) {
+      action.addUnavailableParameter(name, reason, cached);
+    }
   }
 
   /**
@@ -245,26 +718,194 @@ public class AwsParameterStoreService {
    * @param naming        environment variable naming: basename, relative, absolute
    */
   public void buildEnvVarsWithParametersByPath(SimpleBuildWrapper.Context context, Map<String,String> env, String path, Boolean recursive, String naming)  {
-    final AWSSimpleSystemsManagement client = getAWSSimpleSystemsManagement(env);
+    final long credentialsStart = System.nanoTime();
+    final AWSCredentialsProvider credentialsProvider = getAWSCredentialsProvider(env, credentialsId);
+    final String credentialsIdentity = getCredentialsIdentity(env, credentialsProvider);
+    telemetry.addTime(FetchTelemetry.Phase.CREDENTIALS, credentialsStart);
 
+    final List<Parameter> parameters;
+    final long fetchStart = System.nanoTime();
     try {
-      final GetParametersByPathRequest getParametersByPathRequest =
-         new GetParametersByPathRequest().withPath(path).
-                                          withRecursive(recursive).
-                                          withWithDecryption(true);
-      do {
-        final GetParametersByPathResult getParametersByPathResult = client.getParametersByPath(getParametersByPathRequest);
-        for(Parameter parameter : getParametersByPathResult.getParameters()) {
+      parameters = getParametersByPath(credentialsProvider, credentialsIdentity, path, Boolean.TRUE.equals(recursive));
+    } catch(Exception e) {
+      LOGGER.log(Level.WARNING, "Cannot fetch parameters by path: " + e.getMessage(), e);
+      addUnavailableParameter(path, e.getMessage(), false);
+      return;
+    } finally {
+      telemetry.addTime(FetchTelemetry.Phase.FETCH, fetchStart);
+    }
+
+    final long injectStart = System.nanoTime();
+    for(Parameter parameter : parameters) {
+      addToEnvironment(context, toEnvironmentVariable(parameter.getName(), path, naming), parameter.getValue());
+    }
+    telemetry.addTime(FetchTelemetry.Phase.INJECT, injectStart);
+  }
+
+  /**
+   * Gets the parameters in a hierarchy from the {@link ParameterCache}, fetching them
+   * using <code>getParametersByPath</code> if they are not cached. Concurrent fetches
+   * of the same hierarchy are coalesced into one. An expired snapshot within the
+   * stale-while-revalidate window is returned at once and refreshed in the background, and
+   * one within the stale-if-error window is returned if the fetch fails. After a restart the
+   * cache is warmed once per hierarchy from the {@link SnapshotStore}.
+   *
+   * @param credentialsProvider AWS credentials provider or <code>null</code> for the default chain
+   * @param credentialsIdentity identity of <code>credentialsProvider</code>
+   * @param path                hierarchy for the parameter
+   * @param recursive           fetch all parameters within a hierarchy
+   * @return parameters within the hierarchy
+   * @throws Exception if the parameters cannot be fetched
+   */
+  private List<Parameter> getParametersByPath(final AWSCredentialsProvider credentialsProvider, final String credentialsIdentity, String path, boolean recursive) throws Exception {
+    final PathKey key = new PathKey(credentialsIdentity, regionName, path, recursive, true);
+    final ParameterCache cache = ParameterCache.get();
+
+    if(cache.isEnabled() && (credentialsProvider == null || !StringUtils.isEmpty(credentialsId))) {
+      // credentials from the build environment cannot be looked up again, so are never refreshed ahead
+      RefreshAhead.record(key, new PathRefresher(credentialsId, regionName, parameterSource, key));
+    }
+
+    final FetchTelemetry telemetry = this.telemetry;
+    ParameterSnapshot snapshot = cache.get(key);
+    if(snapshot != null) {
+      cache.recordHit();
+      telemetry.addCacheHit();
+      return snapshot.getParameters();
+    }
+
+    final Callable<ParameterSnapshot> loader = new Callable<ParameterSnapshot>() {
+      @Override
+      public ParameterSnapshot call() throws Exception {
+        // a fetch that completed just before this one started may have filled the cache
+        final ParameterSnapshot cached = cache.get(key);
+        return cached != null ? cached : fetchParametersByPath(credentialsProvider, credentialsIdentity, key, retryBudget, telemetry);
+      }
+    };
+
+    final SnapshotStore store = cache.isEnabled() ? SnapshotStore.get() : null;
+    snapshot = cache.getStaleWhileRevalidate(key);
+    if(snapshot == null && store != null) {
+      // after a restart, warm the cache once from the persisted snapshot, served only within the same windows
+      final ParameterSnapshot persisted = store.loadOnce(key);
+      if(persisted != null) {
+        cache.put(key, persisted);
+        snapshot = cache.getStaleWhileRevalidate(key);
+      }
+    }
+    if(snapshot != null) {
+      cache.recordHit();
+      telemetry.addCacheHit();
+      refresh(key, loader);
+      return snapshot.getParameters();
+    }
+
+    if(cache.isEnabled()) {
+      cache.recordMiss();
+    }
+    try {
+      snapshot = PATH_FETCHES.execute(key, loader);
+    } catch(Exception e) {
+      snapshot = cache.getStaleIfError(key);
+      if(snapshot == null) {
+        throw e;
+      }
+      LOGGER.log(Level.WARNING, "Cannot fetch parameters by path: " + path + ", using parameters fetched at " +
+        new Date(snapshot.getFetchedAt()) + ": " + e.getMessage(), e);
+    }
+    return snapshot.getParameters();
+  }
+
+  /**
+   * Fetches the parameters in a hierarchy using <code>getParametersByPath</code> and adds them
+   * to the {@link ParameterCache} and, if enabled, the {@link SnapshotStore}. If an earlier
+   * snapshot of the hierarchy is cached or saved then only changed parameters are fetched.
+   *
+   * @param credentialsProvider AWS credentials provider or <code>null</code> for the default chain
+   * @param credentialsIdentity identity of <code>credentialsProvider</code>
+   * @param key                 path key
+   * @param retryBudget         retry budget for the fetch
+   * @param telemetry           telemetry for the fetch, or <code>null</code> for a background fetch
+   * @return parameter snapshot
+   * @throws Exception if the parameters cannot be fetched
+   */
+  private ParameterSnapshot fetchParametersByPath(AWSCredentialsProvider credentialsProvider, String credentialsIdentity, PathKey key, RetryBudget retryBudget, FetchTelemetry telemetry) throws Exception {
+    final ParameterCache cache = ParameterCache.get();
+    final SnapshotStore store = cache.isEnabled() ? SnapshotStore.get() : null;
+    ParameterSnapshot previous = cache.peek(key);
+    if(previous == null && store != null) {
+      previous = store.loadOnce(key);
+    }
+
+    final long fetchedAt = System.currentTimeMillis();
+    final PathCrawler pathCrawler = new PathCrawler(getParameterStoreClient(credentialsProvider, credentialsIdentity, retryBudget, telemetry), key);
+    final ParameterSnapshot snapshot = new ParameterSnapshot(
+      previous == null ? pathCrawler.fetch() : pathCrawler.revalidate(previous), fetchedAt);
+    cache.put(key, snapshot);
+    if(store != null) {
+      store.saveLater(key, snapshot);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Refreshes a cached hierarchy in the background, unless a refresh is already running.
+   *
+   * @param key     path key
+   * @param loader  fetches and caches the hierarchy
+   */
+  private static void refresh(final PathKey key, final Callable<ParameterSnapshot> loader) {
+    if(!PATH_REFRESHES.add(key)) {
+      return;
+    }
+    try {
+      FetchExecutor.submitBackground(new Callable<Void>() {
+        @Override
+        public Void call() {
           try {
-            context.env(toEnvironmentVariable(parameter.getName(), path, naming), parameter.getValue());
+            PATH_FETCHES.execute(key, loader);
           } catch(Exception e) {
-            LOGGER.log(Level.WARNING, "Cannot add parameter to environment: " + e.getMessage(), e);
+            LOGGER.log(Level.WARNING, "Cannot refresh parameters by path: " + key.getPath() + ": " + e.getMessage(), e);
+          } finally {
+            PATH_REFRESHES.remove(key);
           }
+          return null;
         }
-        getParametersByPathRequest.setNextToken(getParametersByPathResult.getNextToken());
-      } while(getParametersByPathRequest.getNextToken() != null);
-    } catch(Exception e) {
-      LOGGER.log(Level.WARNING, "Cannot fetch parameters by path: " + e.getMessage(), e);
+      });
+    } catch(RejectedExecutionException e) {
+      PATH_REFRESHES.remove(key);
+    }
+  }
+
+  /**
+   * Fetches a hierarchy for {@link RefreshAhead}. Holds only what is needed to look the credentials
+   * up again, so that no build, action or environment is kept alive by a refresher.
+   */
+  private static final class PathRefresher implements Callable<ParameterSnapshot> {
+    private final String credentialsId;
+    private final String regionName;
+    private final ParameterSource parameterSource;
+    private final PathKey key;
+
+    PathRefresher(String credentialsId, String regionName, ParameterSource parameterSource, PathKey key) {
+      this.credentialsId = credentialsId;
+      this.regionName = regionName;
+      this.parameterSource = parameterSource;
+      this.key = key;
+    }
+
+    @Override
+    public ParameterSnapshot call() throws Exception {
+      return PATH_FETCHES.execute(key, new Callable<ParameterSnapshot>() {
+        @Override
+        public ParameterSnapshot call() throws Exception {
+          final AwsParameterStoreService service = new AwsParameterStoreService(credentialsId, regionName, parameterSource);
+          final Map<String,String> env = Collections.emptyMap();
+          final AWSCredentialsProvider credentialsProvider = service.getAWSCredentialsProvider(env, credentialsId);
+          final String credentialsIdentity = service.getCredentialsIdentity(env, credentialsProvider);
+          return service.fetchParametersByPath(credentialsProvider, credentialsIdentity, key, new RetryBudget(), null);
+        }
+      });
     }
   }
 
@@ -273,7 +914,7 @@ public class AwsParameterStoreService {
    *
    * @param name    parameter name
    */
-  private String toEnvironmentVariable(String name) {
+  private static String toEnvironmentVariable(String name) {
     return toEnvironmentVariable(name, null, null);
   }
 
@@ -281,39 +922,15 @@ public class AwsParameterStoreService {
    * Converts <code>name</code> to uppercase. All non alphanumeric characters are converted to underscores.
    * If <code>naming</code> is <code>basename</code> then the environment variable name is anything after the
    * last '/' in the parameter name, if it is <code>relative</code> then the environment variable name is
-   * anything after the <code>path</code>, otherwise the full path is used.
+   * anything after the <code>path</code>, otherwise the full path is used. Names are remembered by
+   * {@link EnvironmentVariableNames}.
    *
    * @param name    parameter name
    * @param path    hierarchy for the parameter
    * @param naming  environment variable naming: basename, relative, absolute
+   * @return environment variable name
    */
-  private String toEnvironmentVariable(String name, String path, String naming) {
-    StringBuffer environmentVariable = new StringBuffer();
-    int start = 0;
-    if(path != null) {
-      if(NAMING_RELATIVE.equals(naming)) {
-        if(name.length() > path.length()) {
-          start = path.length();
-        }
-      } else if(NAMING_ABSOLUTE.equals(naming)) {
-        start = 1;
-      } else {
-        start = name.lastIndexOf('/')+1;
-      }
-    }
-    if(name.charAt(start) == '/') {
-      start++;
-    }
-    for(int i = start; i < name.length(); i++) {
-      char c = name.charAt(i);
-      if(Character.isLetter(c)) {
-        environmentVariable.append(Character.toUpperCase(c));
-      } else if(Character.isDigit(c)) {
-        environmentVariable.append(c);
-      } else {
-        environmentVariable.append('_');
-      }
-    }
-    return environmentVariable.toString();
+  static String toEnvironmentVariable(String name, String path, String naming) {
+    return EnvironmentVariableNames.get(name, path, naming);
   }
 }
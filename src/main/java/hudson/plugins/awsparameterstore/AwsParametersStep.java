@@ -0,0 +1,277 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.RegionUtils;
+
+import com.cloudbees.jenkins.plugins.awscredentials.AWSCredentialsHelper;
+
+import com.google.inject.Inject;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.util.ListBoxModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractSynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * A pipeline step that returns the parameters in a hierarchy as a {@link LazyParameterMap}, keyed
+ * by environment variable name. Names are listed when the step runs, values are fetched when they
+ * are first read, unless <code>fetch</code> is set:
+ * <pre>
+ * def p = awsParameters(path: '/service', recursive: true)
+ * echo p['DB_URL']
+ * </pre>
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class AwsParametersStep extends AbstractStepImpl {
+
+  private final String path;
+  private String credentialsId;
+  private String regionName;
+  private Boolean recursive;
+  private String naming;
+  private Boolean fetch;
+
+  /**
+   * Creates a new {@link AwsParametersStep}.
+   *
+   * @param path  hierarchy for the parameters
+   */
+  @DataBoundConstructor
+  public AwsParametersStep(String path) {
+    this.path = StringUtils.stripToNull(path);
+  }
+
+  /**
+   * Gets path.
+   * @return path
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Gets AWS credentials identifier.
+   * @return AWS credentials identifier
+   */
+  public String getCredentialsId() {
+    return credentialsId;
+  }
+
+  /**
+   * Sets the AWS credentials identifier.
+   *
+   * @param credentialsId  aws credentials id
+   */
+  @DataBoundSetter
+  public void setCredentialsId(String credentialsId) {
+    this.credentialsId = StringUtils.stripToNull(credentialsId);
+  }
+
+  /**
+   * Gets AWS region name.
+   * @return aws region name
+   */
+  public String getRegionName() {
+    return regionName;
+  }
+
+  /**
+   * Sets the AWS region name.
+   *
+   * @param regionName  aws region name
+   */
+  @DataBoundSetter
+  public void setRegionName(String regionName) {
+    this.regionName = regionName;
+  }
+
+  /**
+   * Gets recursive flag.
+   * @return recursive
+   */
+  public Boolean getRecursive() {
+    return recursive;
+  }
+
+  /**
+   * Sets the recursive flag.
+   *
+   * @param recursive  recursive flag
+   */
+  @DataBoundSetter
+  public void setRecursive(Boolean recursive) {
+    this.recursive = recursive;
+  }
+
+  /**
+   * Gets naming: basename, absolute, relative.
+   * @return naming.
+   */
+  public String getNaming() {
+    return naming;
+  }
+
+  /**
+   * Sets the naming type: basename, absolute, relative.
+   *
+   * @param naming  the naming type
+   */
+  @DataBoundSetter
+  public void setNaming(String naming) {
+    this.naming = naming;
+  }
+
+  /**
+   * Gets fetch flag.
+   * @return fetch
+   */
+  public Boolean getFetch() {
+    return fetch;
+  }
+
+  /**
+   * Sets the fetch flag, to fetch every value when the step runs rather than on first read.
+   *
+   * @param fetch  fetch flag
+   */
+  @DataBoundSetter
+  public void setFetch(Boolean fetch) {
+    this.fetch = fetch;
+  }
+
+  /**
+   * Lists the parameters and returns a {@link LazyParameterMap} of them, fetching the values
+   * here, off the pipeline's thread, if <code>fetch</code> is set.
+   */
+  public static final class Execution extends AbstractSynchronousNonBlockingStepExecution<Map<String,String>> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private transient AwsParametersStep step;
+
+    @StepContextParameter
+    private transient Run<?,?> run;
+
+    @StepContextParameter
+    private transient EnvVars env;
+
+    @Override
+    protected Map<String,String> run() throws Exception {
+      final AwsParameterStoreService service = new AwsParameterStoreService(step.getCredentialsId(), step.getRegionName());
+      service.setAction(AwsParameterStoreAction.get(run));
+      final Map<String,String> names = service.listParametersByPath(env, step.getPath(), Boolean.TRUE.equals(step.getRecursive()), step.getNaming());
+      final LazyParameterMap parameters = new LazyParameterMap(service, step.getCredentialsId(), step.getRegionName(), env, names);
+      if(Boolean.TRUE.equals(step.getFetch())) {
+        parameters.fetchAll();
+      }
+      return parameters;
+    }
+  }
+
+  /**
+   * A Jenkins <code>StepDescriptor</code> for the {@link AwsParametersStep}.
+   *
+   * @author Rik Turnbull
+   *
+   */
+  @Extension
+  public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+    public DescriptorImpl() {
+      super(Execution.class);
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "awsParameters";
+    }
+
+    @Override
+    public String getDisplayName() {
+      return Messages.parametersStepDisplayName();
+    }
+
+    /**
+     * Returns a list of AWS credentials identifiers.
+     * @return {@link ListBoxModel} populated with AWS credential identifiers
+     */
+    public ListBoxModel doFillCredentialsIdItems() {
+      return AWSCredentialsHelper.doFillCredentialsIdItems(Jenkins.getActiveInstance());
+    }
+
+    /**
+     * Returns a list of AWS region names.
+     * @return {@link ListBoxModel} populated with AWS region names
+     */
+    public ListBoxModel doFillRegionNameItems() {
+      final ListBoxModel options = new ListBoxModel();
+      final List<String> regionNames = new ArrayList<String>();
+      final List<Region> regions = RegionUtils.getRegions();
+      for(Region region : regions) {
+        regionNames.add(region.getName());
+      }
+      Collections.sort(regionNames);
+      options.add("- select -", null);
+      for(String regionName : regionNames) {
+        options.add(regionName);
+      }
+      return options;
+    }
+
+    /**
+     * Returns a list of naming options: basename, absolute, relative.
+     * @return {@link ListBoxModel} populated with naming options
+     */
+    public ListBoxModel doFillNamingItems() {
+      final ListBoxModel options = new ListBoxModel();
+      options.add("- select -", null);
+      options.add(AwsParameterStoreService.NAMING_BASENAME);
+      options.add(AwsParameterStoreService.NAMING_RELATIVE);
+      options.add(AwsParameterStoreService.NAMING_ABSOLUTE);
+      return options;
+    }
+  }
+}
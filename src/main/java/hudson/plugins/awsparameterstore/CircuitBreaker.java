@@ -0,0 +1,156 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AmazonClientException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-endpoint circuit breaker. After {@link #FAILURE_THRESHOLD} consecutive retryable failures the
+ * circuit opens and calls fail fast for {@link #OPEN_SECONDS}; then a single trial call is let through
+ * and its outcome closes or re-opens the circuit.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class CircuitBreaker {
+
+  /**
+   * Consecutive failures that open the circuit.
+   */
+  static int FAILURE_THRESHOLD = Integer.getInteger(CircuitBreaker.class.getName() + ".failureThreshold", 5);
+
+  /**
+   * Seconds the circuit stays open before a trial call is allowed.
+   */
+  static int OPEN_SECONDS = Integer.getInteger(CircuitBreaker.class.getName() + ".openSeconds", 30);
+
+  private static final ConcurrentMap<String,CircuitBreaker> BREAKERS = new ConcurrentHashMap<String,CircuitBreaker>();
+
+  private enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final String endpoint;
+  private final int failureThreshold;
+  private final long openMillis;
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+
+  /**
+   * Creates a new {@link CircuitBreaker}.
+   *
+   * @param endpoint          endpoint name used in error messages
+   * @param failureThreshold  consecutive failures that open the circuit
+   * @param openMillis        milliseconds the circuit stays open
+   */
+  CircuitBreaker(String endpoint, int failureThreshold, long openMillis) {
+    this.endpoint = endpoint;
+    this.failureThreshold = failureThreshold;
+    this.openMillis = openMillis;
+  }
+
+  /**
+   * Gets the shared {@link CircuitBreaker} for <code>endpoint</code>.
+   *
+   * @param endpoint  AWS endpoint, as given by {@link ClientRegistry#getEndpoint(String)}
+   * @return circuit breaker
+   */
+  static CircuitBreaker get(String endpoint) {
+    CircuitBreaker breaker = BREAKERS.get(endpoint);
+    if(breaker == null) {
+      final CircuitBreaker created = new CircuitBreaker(endpoint, FAILURE_THRESHOLD, TimeUnit.SECONDS.toMillis(OPEN_SECONDS));
+      breaker = BREAKERS.putIfAbsent(endpoint, created);
+      if(breaker == null) {
+        breaker = created;
+      }
+    }
+    return breaker;
+  }
+
+  /**
+   * Removes every shared circuit breaker.
+   */
+  static void clear() {
+    BREAKERS.clear();
+  }
+
+  /**
+   * Checks that a call may be made. A trial call must record its outcome with {@link #onSuccess()}
+   * or {@link #onFailure()}, and then call {@link #release()} however it ends.
+   *
+   * @return <code>true</code> if the call is the trial call of a half-open circuit
+   * @throws AmazonClientException if the circuit is open
+   */
+  synchronized boolean checkAllowed() {
+    if(state == State.CLOSED) {
+      return false;
+    }
+    if(state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+      // let one trial call through
+      state = State.HALF_OPEN;
+      return true;
+    }
+    throw new AmazonClientException("AWS Parameter Store circuit breaker is open for " + endpoint);
+  }
+
+  /**
+   * Ends a trial call. If the trial recorded no outcome, for example because it was interrupted,
+   * the circuit goes back to open and the next call is let through as a new trial.
+   */
+  synchronized void release() {
+    if(state == State.HALF_OPEN) {
+      state = State.OPEN;
+    }
+  }
+
+  /**
+   * Records a call that reached the endpoint, closing the circuit.
+   */
+  synchronized void onSuccess() {
+    state = State.CLOSED;
+    failures = 0;
+  }
+
+  /**
+   * Records a retryable failure, opening the circuit if there have been too many.
+   */
+  synchronized void onFailure() {
+    failures++;
+    if(state == State.HALF_OPEN || failures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Checks whether the circuit is open.
+   * @return <code>true</code> if calls are failing fast
+   */
+  synchronized boolean isOpen() {
+    return state != State.CLOSED;
+  }
+}
@@ -0,0 +1,336 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagementClient;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagementClientBuilder;
+
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+import hudson.model.PeriodicWork;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Controller-wide registry of {@link AWSSimpleSystemsManagement} clients, keyed by credentials identity,
+ * region, endpoint and proxy configuration, so that builds share connection pools instead of creating a client each.
+ * Clients that have not been used for {@link #IDLE_TIMEOUT_MINUTES} are evicted and shut down, and so are
+ * clients replaced because their credentials changed, once they have been idle for as long.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public final class ClientRegistry {
+
+  /**
+   * Minutes a client may be unused before it is evicted.
+   */
+  static long IDLE_TIMEOUT_MINUTES = Long.getLong(ClientRegistry.class.getName() + ".idleTimeoutMinutes", 10);
+
+  /**
+   * Endpoint used when none is configured, e.g. a local stand-in for load tests.
+   */
+  private static final String DEFAULT_ENDPOINT_URL = System.getProperty(ClientRegistry.class.getName() + ".endpointUrl");
+
+  private static final Logger LOGGER = Logger.getLogger(ClientRegistry.class.getName());
+
+  private static final ConcurrentMap<Key,Entry> CLIENTS = new ConcurrentHashMap<Key,Entry>();
+
+  private static final Queue<Entry> REPLACED = new ConcurrentLinkedQueue<Entry>();
+
+  private static volatile String endpointUrl = DEFAULT_ENDPOINT_URL;
+
+  private ClientRegistry() {
+  }
+
+  /**
+   * Sets the endpoint that new clients are pointed at instead of the public regional endpoint,
+   * for example a VPC endpoint. Clients for the previous endpoint are no longer handed out and
+   * are shut down once idle.
+   *
+   * @param endpointUrl  endpoint URL or <code>null</code> for the regional endpoint
+   */
+  static void setEndpointUrl(String endpointUrl) {
+    ClientRegistry.endpointUrl = StringUtils.isBlank(endpointUrl) ? DEFAULT_ENDPOINT_URL : endpointUrl.trim();
+  }
+
+  /**
+   * Gets the endpoint that clients are pointed at.
+   *
+   * @return endpoint URL or <code>null</code> for the regional endpoint
+   */
+  static String getEndpointUrl() {
+    return endpointUrl;
+  }
+
+  /**
+   * Gets the endpoint that clients for <code>regionName</code> call, for keying per-endpoint state.
+   *
+   * @param regionName  AWS region name
+   * @return the region name, followed by the endpoint URL if it is overridden
+   */
+  static String getEndpoint(String regionName) {
+    final String endpointUrl = ClientRegistry.endpointUrl;
+    return endpointUrl == null ? regionName : regionName + "/" + endpointUrl;
+  }
+
+  /**
+   * Returns a shared client for <code>credentialsProvider</code>, <code>regionName</code> and
+   * <code>proxy</code>, creating one if necessary.
+   *
+   * @param credentialsIdentity  stable identity of the credentials, e.g. a Jenkins credentials id
+   * @param credentialsProvider  AWS credentials provider or <code>null</code> for the default chain
+   * @param regionName           AWS region name
+   * @param proxy                Jenkins proxy configuration or <code>null</code>
+   * @return {@link AWSSimpleSystemsManagement} client
+   */
+  static AWSSimpleSystemsManagement getClient(String credentialsIdentity, AWSCredentialsProvider credentialsProvider, String regionName, ProxyConfiguration proxy) {
+    final String endpointUrl = ClientRegistry.endpointUrl;
+    final Key key = new Key(credentialsIdentity, regionName, endpointUrl, proxy);
+    while(true) {
+      final Entry entry = CLIENTS.get(key);
+      if(entry != null && entry.isFor(credentialsProvider)) {
+        entry.lastUsed = System.currentTimeMillis();
+        return entry.client;
+      }
+      final Entry created = new Entry(newClient(credentialsProvider, regionName, endpointUrl, proxy), credentialsProvider);
+      final boolean registered = entry == null ? CLIENTS.putIfAbsent(key, created) == null : CLIENTS.replace(key, entry, created);
+      if(registered) {
+        if(entry != null) {
+          // builds may still be using the replaced client, so it is shut down once idle
+          REPLACED.add(entry);
+        }
+        return created.client;
+      }
+      // another thread won the race, so use its client instead
+      created.client.shutdown();
+    }
+  }
+
+  /**
+   * Evicts and shuts down clients that have been idle for longer than <code>idleMillis</code>.
+   *
+   * @param idleMillis  idle time in milliseconds
+   */
+  static void evict(long idleMillis) {
+    evictUnusedSince(System.currentTimeMillis() - idleMillis);
+  }
+
+  /**
+   * Shuts down and removes every client.
+   */
+  static void clear() {
+    evictUnusedSince(Long.MAX_VALUE);
+  }
+
+  /**
+   * Evicts and shuts down clients last used before <code>cutoff</code>.
+   *
+   * @param cutoff  time in milliseconds
+   */
+  private static void evictUnusedSince(long cutoff) {
+    final Iterator<Map.Entry<Key,Entry>> iterator = CLIENTS.entrySet().iterator();
+    while(iterator.hasNext()) {
+      final Map.Entry<Key,Entry> mapEntry = iterator.next();
+      final Entry entry = mapEntry.getValue();
+      if(entry.lastUsed < cutoff && CLIENTS.remove(mapEntry.getKey(), entry)) {
+        LOGGER.log(Level.FINE, "Shutting down idle AWS Parameter Store client: {0}", mapEntry.getKey());
+        entry.client.shutdown();
+      }
+    }
+    final Iterator<Entry> replaced = REPLACED.iterator();
+    while(replaced.hasNext()) {
+      final Entry entry = replaced.next();
+      if(entry.lastUsed < cutoff) {
+        replaced.remove();
+        entry.client.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of replaced clients waiting to be shut down.
+   * @return number of replaced clients
+   */
+  static int getReplaced() {
+    return REPLACED.size();
+  }
+
+  /**
+   * Digests static credentials, such as those from the build environment, which are given
+   * in a new provider for every build.
+   *
+   * @param credentialsProvider  AWS credentials provider or <code>null</code>
+   * @return hex encoded digest, or <code>null</code> if the credentials are not static
+   */
+  private static String getStaticCredentialsDigest(AWSCredentialsProvider credentialsProvider) {
+    if(!(credentialsProvider instanceof AWSStaticCredentialsProvider)) {
+      return null;
+    }
+    final AWSCredentials credentials = credentialsProvider.getCredentials();
+    return Digests.sha256(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(),
+      credentials instanceof AWSSessionCredentials ? ((AWSSessionCredentials)credentials).getSessionToken() : null);
+  }
+
+  /**
+   * Creates a new {@link AWSSimpleSystemsManagement}.
+   *
+   * @param credentialsProvider  AWS credentials provider or <code>null</code> for the default chain
+   * @param regionName           AWS region name
+   * @param endpointUrl          endpoint URL or <code>null</code> for the regional endpoint
+   * @param proxy                Jenkins proxy configuration or <code>null</code>
+   * @return {@link AWSSimpleSystemsManagement} client
+   */
+  private static AWSSimpleSystemsManagement newClient(AWSCredentialsProvider credentialsProvider, String regionName, String endpointUrl, ProxyConfiguration proxy) {
+    // retries are made by ParameterStoreClient so that they respect the rate limiter and retry budget
+    final ClientConfiguration clientConfiguration = new ClientConfiguration().withMaxErrorRetry(0);
+    if(proxy != null) {
+      clientConfiguration.setProxyHost(proxy.name);
+      clientConfiguration.setProxyPort(proxy.port);
+      clientConfiguration.setProxyUsername(proxy.getUserName());
+      clientConfiguration.setProxyPassword(proxy.getPassword());
+    }
+
+    final AWSSimpleSystemsManagementClientBuilder builder = AWSSimpleSystemsManagementClient.
+                                                              builder().
+                                                              withClientConfiguration(clientConfiguration);
+    // use the default AWS credential chain from Jenkins master when there is no provider
+    if(credentialsProvider != null) {
+      builder.setCredentials(credentialsProvider);
+    }
+    // the region still signs requests when they are sent to another endpoint
+    if(endpointUrl == null) {
+      builder.setRegion(regionName);
+    } else {
+      builder.setEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpointUrl, regionName));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Registry key: credentials identity, region name, endpoint and proxy settings.
+   */
+  private static final class Key {
+    private final String credentialsIdentity;
+    private final String regionName;
+    private final String endpointUrl;
+    private final String proxy;
+
+    Key(String credentialsIdentity, String regionName, String endpointUrl, ProxyConfiguration proxy) {
+      this.credentialsIdentity = credentialsIdentity;
+      this.regionName = regionName;
+      this.endpointUrl = endpointUrl;
+      this.proxy = proxy == null ? null :
+        proxy.name + ":" + proxy.port + ":" + proxy.getUserName() + ":" + Digests.sha256(proxy.getPassword());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(!(o instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key)o;
+      return credentialsIdentity.equals(key.credentialsIdentity) &&
+             regionName.equals(key.regionName) &&
+             (endpointUrl == null ? key.endpointUrl == null : endpointUrl.equals(key.endpointUrl)) &&
+             (proxy == null ? key.proxy == null : proxy.equals(key.proxy));
+    }
+
+    @Override
+    public int hashCode() {
+      int hashCode = credentialsIdentity.hashCode();
+      hashCode = 31 * hashCode + regionName.hashCode();
+      hashCode = 31 * hashCode + (endpointUrl == null ? 0 : endpointUrl.hashCode());
+      hashCode = 31 * hashCode + (proxy == null ? 0 : proxy.hashCode());
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return credentialsIdentity + "@" + (endpointUrl == null ? regionName : regionName + "/" + endpointUrl);
+    }
+  }
+
+  /**
+   * Registered client with the provider it was built with and its last use time.
+   */
+  private static final class Entry {
+    private final AWSSimpleSystemsManagement client;
+    private final AWSCredentialsProvider credentialsProvider;
+    private final String staticCredentialsDigest;
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    Entry(AWSSimpleSystemsManagement client, AWSCredentialsProvider credentialsProvider) {
+      this.client = client;
+      this.credentialsProvider = credentialsProvider;
+      this.staticCredentialsDigest = getStaticCredentialsDigest(credentialsProvider);
+    }
+
+    /**
+     * Checks whether the client was built for <code>credentialsProvider</code>. Static credentials are
+     * compared by value; other providers are compared by identity so that edited Jenkins credentials get
+     * a new client.
+     */
+    boolean isFor(AWSCredentialsProvider credentialsProvider) {
+      if(this.credentialsProvider == credentialsProvider) {
+        return true;
+      }
+      return staticCredentialsDigest != null && staticCredentialsDigest.equals(getStaticCredentialsDigest(credentialsProvider));
+    }
+  }
+
+  /**
+   * Periodically shuts down idle clients.
+   */
+  @Extension
+  public static final class IdleClientReaper extends PeriodicWork {
+    @Override
+    public long getRecurrencePeriod() {
+      return MIN;
+    }
+
+    @Override
+    protected void doRun() {
+      evict(TimeUnit.MINUTES.toMillis(IDLE_TIMEOUT_MINUTES));
+      RateLimiter.evict(TimeUnit.MINUTES.toMillis(IDLE_TIMEOUT_MINUTES));
+    }
+  }
+}
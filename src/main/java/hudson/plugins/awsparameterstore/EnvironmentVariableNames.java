@@ -0,0 +1,183 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps parameter names to environment variable names. Letters are converted to uppercase, digits
+ * are kept and every other character becomes an underscore. ASCII characters are mapped with a
+ * lookup table; other characters use {@link Character}, so non-ASCII letters and digits are kept.
+ * Each name is mapped into a <code>char[]</code> of exactly the right size.
+ * <p>
+ * Results are remembered, so that builds fetching the same parameters reuse the same names instead
+ * of mapping them again. The result only depends on the name and on where the variable name starts
+ * within it, so results are kept by start offset and looked up without allocating a key. When
+ * {@link #MAX_ENTRIES} names are remembered the memo is cleared.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class EnvironmentVariableNames {
+
+  /**
+   * Maximum number of remembered names.
+   */
+  static int MAX_ENTRIES = Integer.getInteger(EnvironmentVariableNames.class.getName() + ".maxEntries", 65536);
+
+  /**
+   * Start offsets from zero up to this are remembered; names starting further in are always mapped.
+   */
+  private static final int MAX_START = 256;
+
+  private static final char[] ASCII = new char[128];
+
+  static {
+    for(char c = 0; c < ASCII.length; c++) {
+      if(c >= 'a' && c <= 'z') {
+        ASCII[c] = (char)(c - 'a' + 'A');
+      } else if((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+        ASCII[c] = c;
+      } else {
+        ASCII[c] = '_';
+      }
+    }
+  }
+
+  private static final AtomicReferenceArray<ConcurrentMap<String,String>> MEMO = new AtomicReferenceArray<ConcurrentMap<String,String>>(MAX_START);
+  private static final AtomicInteger SIZE = new AtomicInteger();
+
+  private EnvironmentVariableNames() {
+  }
+
+  /**
+   * Gets the environment variable name for <code>name</code>, remembering the result.
+   *
+   * @param name    parameter name
+   * @param path    hierarchy for the parameter or <code>null</code>
+   * @param naming  environment variable naming: basename, relative, absolute
+   * @return environment variable name
+   * @see AwsParameterStoreService#toEnvironmentVariable(String, String, String)
+   */
+  static String get(String name, String path, String naming) {
+    final int start = getStart(name, path, naming);
+    if(start >= MAX_START) {
+      return map(name, start);
+    }
+
+    ConcurrentMap<String,String> memo = MEMO.get(start);
+    if(memo == null) {
+      MEMO.compareAndSet(start, null, new ConcurrentHashMap<String,String>());
+      memo = MEMO.get(start);
+    }
+    String environmentVariable = memo.get(name);
+    if(environmentVariable == null) {
+      environmentVariable = map(name, start);
+      if(SIZE.incrementAndGet() > MAX_ENTRIES) {
+        clear();
+      }
+      if(memo.putIfAbsent(name, environmentVariable) != null) {
+        SIZE.decrementAndGet();
+      }
+    }
+    return environmentVariable;
+  }
+
+  /**
+   * Maps <code>name</code> to an environment variable name without remembering the result.
+   *
+   * @param name    parameter name
+   * @param path    hierarchy for the parameter or <code>null</code>
+   * @param naming  environment variable naming: basename, relative, absolute
+   * @return environment variable name
+   */
+  static String convert(String name, String path, String naming) {
+    return map(name, getStart(name, path, naming));
+  }
+
+  /**
+   * Forgets every remembered name.
+   */
+  static void clear() {
+    for(int i = 0; i < MEMO.length(); i++) {
+      MEMO.set(i, null);
+    }
+    SIZE.set(0);
+  }
+
+  /**
+   * Gets the approximate number of remembered names.
+   * @return number of names
+   */
+  static int size() {
+    return SIZE.get();
+  }
+
+  /**
+   * Gets the offset in <code>name</code> where the environment variable name starts: after the last '/'
+   * for <code>basename</code>, after <code>path</code> for <code>relative</code> and after the leading
+   * '/' for <code>absolute</code>, or when there is no path. A '/' at the start offset is skipped.
+   */
+  private static int getStart(String name, String path, String naming) {
+    int start = 0;
+    if(path != null) {
+      if(AwsParameterStoreService.NAMING_RELATIVE.equals(naming)) {
+        if(name.length() > path.length()) {
+          start = path.length();
+        }
+      } else if(AwsParameterStoreService.NAMING_ABSOLUTE.equals(naming)) {
+        start = 1;
+      } else {
+        start = name.lastIndexOf('/')+1;
+      }
+    }
+    if(name.charAt(start) == '/') {
+      start++;
+    }
+    return start;
+  }
+
+  /**
+   * Maps the characters of <code>name</code> from <code>start</code>.
+   */
+  private static String map(String name, int start) {
+    final char[] environmentVariable = new char[name.length() - start];
+    for(int i = start; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if(c < ASCII.length) {
+        environmentVariable[i - start] = ASCII[c];
+      } else if(Character.isLetter(c)) {
+        environmentVariable[i - start] = Character.toUpperCase(c);
+      } else if(Character.isDigit(c)) {
+        environmentVariable[i - start] = c;
+      } else {
+        environmentVariable[i - start] = '_';
+      }
+    }
+    return new String(environmentVariable);
+  }
+}
@@ -0,0 +1,120 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared thread pools for AWS Parameter Store fetches that run alongside the build
+ * thread. Fetches that a build waits for use a pool of up to {@link #MAX_THREADS} threads,
+ * and run on the calling thread when every thread is busy, so that fetches which wait
+ * for other fetches cannot deadlock. Work that no build waits for, such as refreshes and
+ * saving snapshots, uses a smaller pool with a bounded queue and is rejected when the
+ * queue is full. Threads are daemons and are released after a minute of inactivity.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class FetchExecutor {
+
+  /**
+   * Maximum number of threads for fetches that a build waits for.
+   */
+  static int MAX_THREADS = Integer.getInteger(FetchExecutor.class.getName() + ".maxThreads", 32);
+
+  /**
+   * Number of threads for background work.
+   */
+  static int BACKGROUND_THREADS = Integer.getInteger(FetchExecutor.class.getName() + ".backgroundThreads", 4);
+
+  /**
+   * Maximum number of background tasks waiting for a thread.
+   */
+  static int BACKGROUND_QUEUE = Integer.getInteger(FetchExecutor.class.getName() + ".backgroundQueue", 100);
+
+  private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+    0, Math.max(1, MAX_THREADS), 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+    new NamingThreadFactory(new DaemonThreadFactory(), "AwsParameterStore.fetch"));
+
+  private static final ThreadPoolExecutor BACKGROUND = new ThreadPoolExecutor(
+    Math.max(1, BACKGROUND_THREADS), Math.max(1, BACKGROUND_THREADS), 60, TimeUnit.SECONDS,
+    new LinkedBlockingQueue<Runnable>(Math.max(1, BACKGROUND_QUEUE)),
+    new NamingThreadFactory(new DaemonThreadFactory(), "AwsParameterStore.background"));
+
+  static {
+    BACKGROUND.allowCoreThreadTimeOut(true);
+  }
+
+  private FetchExecutor() {
+  }
+
+  /**
+   * Submits <code>task</code> for asynchronous execution, or runs it on the calling thread
+   * if every fetch thread is busy.
+   *
+   * @param task  the task to run
+   * @return a {@link Future} for the result of <code>task</code>
+   */
+  static <T> Future<T> submit(Callable<T> task) {
+    try {
+      return EXECUTOR.submit(task);
+    } catch(RejectedExecutionException e) {
+      final FutureTask<T> future = new FutureTask<T>(task);
+      future.run();
+      return future;
+    }
+  }
+
+  /**
+   * Submits <code>task</code> for asynchronous execution on a fetch thread.
+   *
+   * @param task  the task to run
+   * @return a {@link Future} for the result of <code>task</code>
+   * @throws RejectedExecutionException if every fetch thread is busy
+   */
+  static <T> Future<T> trySubmit(Callable<T> task) {
+    return EXECUTOR.submit(task);
+  }
+
+  /**
+   * Submits <code>task</code> for execution in the background.
+   *
+   * @param task  the task to run
+   * @return a {@link Future} for the result of <code>task</code>
+   * @throws RejectedExecutionException if too many background tasks are waiting
+   */
+  static <T> Future<T> submitBackground(Callable<T> task) {
+    return BACKGROUND.submit(task);
+  }
+}
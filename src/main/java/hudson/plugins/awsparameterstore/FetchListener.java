@@ -0,0 +1,81 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Receives notifications of calls made to AWS Parameter Store by any build or background
+ * refresh, for example to publish metrics.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public abstract class FetchListener implements ExtensionPoint {
+
+  private static final Logger LOGGER = Logger.getLogger(FetchListener.class.getName());
+
+  /**
+   * Called after each call to AWS Parameter Store, including each attempt of a retried call.
+   *
+   * @param operation   operation name, e.g. <code>GetParametersByPath</code>
+   * @param regionName  AWS region name, or <code>null</code> if it is not known
+   * @param nanos       duration of the call in nanoseconds
+   * @param error       why the call failed, or <code>null</code> if it succeeded
+   */
+  public void onCall(String operation, String regionName, long nanos, Exception error) {
+  }
+
+  /**
+   * Notifies every {@link FetchListener} of a call.
+   *
+   * @param operation   operation name
+   * @param regionName  AWS region name, or <code>null</code> if it is not known
+   * @param nanos       duration of the call in nanoseconds
+   * @param error       why the call failed, or <code>null</code> if it succeeded
+   */
+  static void fireCall(String operation, String regionName, long nanos, Exception error) {
+    final Jenkins jenkins = Jenkins.getInstance();
+    if(jenkins == null) {
+      return;
+    }
+    final ExtensionList<FetchListener> listeners = jenkins.getExtensionList(FetchListener.class);
+    if(listeners == null) {
+      return;
+    }
+    for(FetchListener listener : listeners) {
+      try {
+        listener.onCall(operation, regionName, nanos, error);
+      } catch(RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Fetch listener failed: " + listener, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,258 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records where a build spent its time fetching AWS Parameter Store parameters: the time in each
+ * {@link Phase}, the number of calls by operation, retries, throttled calls, cache hits and the
+ * parameters and bytes added to the environment. Kept by the {@link AwsParameterStoreAction}.
+ * Phases may overlap, for example a client for a hierarchy is created while it is being fetched.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public final class FetchTelemetry {
+
+  /**
+   * Part of fetching parameters that time is recorded for.
+   */
+  enum Phase {
+    CREDENTIALS("Credentials"),
+    CLIENT("Client"),
+    LIST("Listing"),
+    FETCH("Fetching"),
+    INJECT("Environment");
+
+    private final String description;
+
+    Phase(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  private final EnumMap<Phase,Long> phaseNanos = new EnumMap<Phase,Long>(Phase.class);
+  private final Map<String,Integer> calls = new TreeMap<String,Integer>();
+  private int retries;
+  private int throttles;
+  private int cacheHits;
+  private int parameters;
+  private long bytes;
+
+  /**
+   * Adds time spent in <code>phase</code>.
+   *
+   * @param phase      phase
+   * @param startNanos value of {@link System#nanoTime()} when the phase started
+   */
+  synchronized void addTime(Phase phase, long startNanos) {
+    final Long nanos = phaseNanos.get(phase);
+    phaseNanos.put(phase, (nanos == null ? 0 : nanos.longValue()) + System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Counts a call to AWS Parameter Store, including a retried call.
+   *
+   * @param operation  operation name, e.g. <code>GetParametersByPath</code>
+   */
+  synchronized void addCall(String operation) {
+    final Integer count = calls.get(operation);
+    calls.put(operation, count == null ? 1 : count.intValue() + 1);
+  }
+
+  /**
+   * Counts a retry.
+   */
+  synchronized void addRetry() {
+    retries++;
+  }
+
+  /**
+   * Counts a call that AWS throttled.
+   */
+  synchronized void addThrottle() {
+    throttles++;
+  }
+
+  /**
+   * Counts a hierarchy served from the cache.
+   */
+  synchronized void addCacheHit() {
+    cacheHits++;
+  }
+
+  /**
+   * Counts a parameter added to the environment.
+   *
+   * @param value  parameter value
+   */
+  synchronized void addParameter(String value) {
+    parameters++;
+    bytes += utf8Length(value);
+  }
+
+  /**
+   * Adds everything recorded by <code>other</code>.
+   *
+   * @param other  other telemetry
+   */
+  void addAll(FetchTelemetry other) {
+    if(other == this) {
+      return;
+    }
+    final FetchTelemetry copy = other.copy();
+    synchronized(this) {
+      for(Map.Entry<Phase,Long> entry : copy.phaseNanos.entrySet()) {
+        final Long nanos = phaseNanos.get(entry.getKey());
+        phaseNanos.put(entry.getKey(), (nanos == null ? 0 : nanos.longValue()) + entry.getValue().longValue());
+      }
+      for(Map.Entry<String,Integer> entry : copy.calls.entrySet()) {
+        final Integer count = calls.get(entry.getKey());
+        calls.put(entry.getKey(), (count == null ? 0 : count.intValue()) + entry.getValue().intValue());
+      }
+      retries += copy.retries;
+      throttles += copy.throttles;
+      cacheHits += copy.cacheHits;
+      parameters += copy.parameters;
+      bytes += copy.bytes;
+    }
+  }
+
+  /**
+   * Copies everything recorded so far.
+   */
+  private synchronized FetchTelemetry copy() {
+    final FetchTelemetry copy = new FetchTelemetry();
+    copy.phaseNanos.putAll(phaseNanos);
+    copy.calls.putAll(calls);
+    copy.retries = retries;
+    copy.throttles = throttles;
+    copy.cacheHits = cacheHits;
+    copy.parameters = parameters;
+    copy.bytes = bytes;
+    return copy;
+  }
+
+  /**
+   * Checks whether nothing has been recorded.
+   * @return <code>true</code> if nothing has been recorded
+   */
+  public synchronized boolean isEmpty() {
+    return phaseNanos.isEmpty() && calls.isEmpty() && parameters == 0;
+  }
+
+  /**
+   * Gets the time spent in each phase, in the order the phases happen.
+   * @return milliseconds by phase description
+   */
+  public synchronized Map<String,Long> getPhaseMillis() {
+    final Map<String,Long> phaseMillis = new LinkedHashMap<String,Long>();
+    for(Map.Entry<Phase,Long> entry : phaseNanos.entrySet()) {
+      phaseMillis.put(entry.getKey().toString(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().longValue()));
+    }
+    return phaseMillis;
+  }
+
+  /**
+   * Gets the number of calls by operation, including retried calls.
+   * @return calls by operation name
+   */
+  public synchronized Map<String,Integer> getCalls() {
+    return new TreeMap<String,Integer>(calls);
+  }
+
+  /**
+   * Gets the number of retries.
+   * @return retries
+   */
+  public synchronized int getRetries() {
+    return retries;
+  }
+
+  /**
+   * Gets the number of calls that AWS throttled.
+   * @return throttled calls
+   */
+  public synchronized int getThrottles() {
+    return throttles;
+  }
+
+  /**
+   * Gets the number of hierarchies served from the cache.
+   * @return cache hits
+   */
+  public synchronized int getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * Gets the number of parameters added to the environment.
+   * @return parameters
+   */
+  public synchronized int getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Gets the size of the parameter values added to the environment, encoded as UTF-8.
+   * @return bytes
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Gets the UTF-8 encoded length of <code>value</code> without encoding it.
+   */
+  private static long utf8Length(String value) {
+    if(value == null) {
+      return 0;
+    }
+    long length = 0;
+    for(int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if(c < 0x80) {
+        length++;
+      } else if(c < 0x800) {
+        length += 2;
+      } else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
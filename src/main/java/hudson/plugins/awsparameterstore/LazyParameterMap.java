@@ -0,0 +1,208 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A read-only map of parameter values by environment variable name, returned by the
+ * {@link AwsParametersStep}. The parameter names are listed up front, but values are fetched
+ * and decrypted on first access, in batches of up to {@value AwsParameterStoreService#GET_PARAMETERS_MAX_NAMES}
+ * parameters in the order they were listed. Every listed name is a key, and a parameter that could
+ * not be fetched has a <code>null</code> value.
+ * <p>
+ * Values read from a pipeline script are fetched on the thread that runs the script, which waits
+ * for AWS and holds up the rest of the build meanwhile. The step's <code>fetch</code> option fetches
+ * every value while the step runs instead.
+ * <p>
+ * Fetched values are not serialized with the pipeline, so they are fetched again after a restart.
+ * Credentials from the build environment are not serialized either, so a map created with them
+ * cannot fetch any more values after a restart.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class LazyParameterMap extends AbstractMap<String,String> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String credentialsId;
+  private final String regionName;
+  private final boolean environmentCredentials;
+  private final Map<String,String> names;
+  private final List<String> parameterNames;
+
+  private transient AwsParameterStoreService service;
+  private transient Map<String,String> env;
+  private transient Map<String,Integer> positions;
+  private transient Set<Integer> fetchedBatches;
+  private transient Map<String,String> values;
+
+  /**
+   * Creates a new {@link LazyParameterMap}.
+   *
+   * @param service        service used to fetch values
+   * @param credentialsId  AWS credentials identifier
+   * @param regionName     AWS region name
+   * @param env            execution environment variables
+   * @param names          parameter names by environment variable name, in the order they were listed
+   */
+  LazyParameterMap(AwsParameterStoreService service, String credentialsId, String regionName, Map<String,String> env, Map<String,String> names) {
+    this.service = service;
+    this.credentialsId = credentialsId;
+    this.regionName = regionName;
+    this.env = new HashMap<String,String>(env);
+    this.environmentCredentials = StringUtils.isEmpty(credentialsId) && env.containsKey("AWS_ACCESS_KEY_ID");
+    this.names = new LinkedHashMap<String,String>(names);
+    this.parameterNames = new ArrayList<String>(names.values());
+  }
+
+  /**
+   * Gets the value of a parameter, fetching it and the rest of its batch if it has not been fetched.
+   *
+   * @param key  environment variable name
+   * @return parameter value, or <code>null</code> if there is no such parameter or it could not be fetched
+   */
+  @Override
+  public synchronized String get(Object key) {
+    final String name = names.get(key);
+    if(name == null) {
+      return null;
+    }
+    fetch(getPositions().get(name) / AwsParameterStoreService.GET_PARAMETERS_MAX_NAMES);
+    return getValues().get(name);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return names.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return names.size();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return Collections.unmodifiableSet(names.keySet());
+  }
+
+  /**
+   * Gets the entries, fetching every value that has not been fetched. Parameters that could not be
+   * fetched have a <code>null</code> value.
+   *
+   * @return entries in the order the parameters were listed
+   */
+  @Override
+  public synchronized Set<Map.Entry<String,String>> entrySet() {
+    fetchAll();
+    final Map<String,String> entries = new LinkedHashMap<String,String>();
+    for(Map.Entry<String,String> name : names.entrySet()) {
+      entries.put(name.getKey(), getValues().get(name.getValue()));
+    }
+    return Collections.unmodifiableMap(entries).entrySet();
+  }
+
+  /**
+   * Fetches every value that has not been fetched.
+   */
+  synchronized void fetchAll() {
+    for(int batch = 0; batch * AwsParameterStoreService.GET_PARAMETERS_MAX_NAMES < parameterNames.size(); batch++) {
+      fetch(batch);
+    }
+  }
+
+  /**
+   * Lists the environment variable names only, so that printing the map neither fetches nor reveals values.
+   *
+   * @return environment variable names
+   */
+  @Override
+  public String toString() {
+    return names.keySet().toString();
+  }
+
+  /**
+   * Fetches a batch of values, unless it has been fetched.
+   *
+   * @param batch  batch number
+   */
+  private void fetch(int batch) {
+    if(fetchedBatches == null) {
+      fetchedBatches = new HashSet<Integer>();
+    }
+    if(!fetchedBatches.add(batch)) {
+      return;
+    }
+    final int start = batch * AwsParameterStoreService.GET_PARAMETERS_MAX_NAMES;
+    final List<String> batchNames = parameterNames.subList(start, Math.min(start + AwsParameterStoreService.GET_PARAMETERS_MAX_NAMES, parameterNames.size()));
+    getValues().putAll(getService().getParameterValues(getEnvironment(), batchNames));
+  }
+
+  private Map<String,Integer> getPositions() {
+    if(positions == null) {
+      positions = new HashMap<String,Integer>();
+      for(int i = 0; i < parameterNames.size(); i++) {
+        positions.put(parameterNames.get(i), i);
+      }
+    }
+    return positions;
+  }
+
+  private Map<String,String> getValues() {
+    if(values == null) {
+      values = new HashMap<String,String>();
+    }
+    return values;
+  }
+
+  private AwsParameterStoreService getService() {
+    if(service == null) {
+      service = new AwsParameterStoreService(credentialsId, regionName);
+    }
+    return service;
+  }
+
+  private Map<String,String> getEnvironment() {
+    if(env == null) {
+      if(environmentCredentials) {
+        throw new IllegalStateException("Cannot fetch parameters after a restart using AWS credentials from the environment");
+      }
+      env = Collections.emptyMap();
+    }
+    return env;
+  }
+}
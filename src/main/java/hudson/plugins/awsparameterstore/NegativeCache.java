@@ -0,0 +1,175 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller-wide cache of parameters that could not be fetched because they do not exist, the
+ * credentials may not read them, or their names are invalid. Such names are skipped until their
+ * entry expires, rather than being requested again by every build. A time to live of zero disables
+ * the cache.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class NegativeCache {
+
+  /**
+   * Maximum number of names remembered; the least recently used are forgotten first.
+   */
+  static int MAX_ENTRIES = Integer.getInteger(NegativeCache.class.getName() + ".maxEntries", 10000);
+
+  /**
+   * Why a parameter could not be fetched.
+   */
+  enum Reason {
+    NOT_FOUND("not found"),
+    ACCESS_DENIED("access denied"),
+    INVALID("invalid parameter");
+
+    private final String description;
+
+    Reason(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  private static final NegativeCache INSTANCE = new NegativeCache();
+
+  private final LinkedHashMap<String,Failure> entries = new LinkedHashMap<String,Failure>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String,Failure> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+  private long ttlMillis = TimeUnit.SECONDS.toMillis(AwsParameterStoreConfiguration.DEFAULT_NEGATIVE_CACHE_TTL);
+
+  /**
+   * Gets the {@link NegativeCache} singleton.
+   * @return negative cache
+   */
+  static NegativeCache get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Gets why a failure is worth remembering.
+   *
+   * @param e  the exception thrown when fetching a parameter
+   * @return reason or <code>null</code> if the failure may not happen again, for example throttling
+   */
+  static Reason getReason(Exception e) {
+    if(AwsErrors.isNotFound(e)) {
+      return Reason.NOT_FOUND;
+    }
+    if(AwsErrors.isAccessDenied(e)) {
+      return Reason.ACCESS_DENIED;
+    }
+    return null;
+  }
+
+  /**
+   * Sets the time to live, forgetting every name if the cache is now disabled.
+   *
+   * @param ttl  time to live in seconds, zero to disable the cache
+   */
+  synchronized void setTtl(int ttl) {
+    this.ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ttl));
+    if(ttlMillis <= 0) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * Gets why a parameter could not be fetched, if that is still remembered.
+   *
+   * @param identity    credentials identity
+   * @param regionName  aws region name
+   * @param name        parameter name
+   * @return reason or <code>null</code> if the parameter should be fetched
+   */
+  synchronized Reason get(String identity, String regionName, String name) {
+    final String key = toKey(identity, regionName, name);
+    final Failure failure = entries.get(key);
+    if(failure == null) {
+      return null;
+    }
+    if(System.currentTimeMillis() >= failure.expiresAt) {
+      entries.remove(key);
+      return null;
+    }
+    return failure.reason;
+  }
+
+  /**
+   * Remembers why a parameter could not be fetched.
+   *
+   * @param identity    credentials identity
+   * @param regionName  aws region name
+   * @param name        parameter name
+   * @param reason      why the parameter could not be fetched
+   */
+  synchronized void put(String identity, String regionName, String name, Reason reason) {
+    if(ttlMillis > 0) {
+      entries.put(toKey(identity, regionName, name), new Failure(reason, System.currentTimeMillis() + ttlMillis));
+    }
+  }
+
+  /**
+   * Forgets every name.
+   */
+  synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Gets the number of names remembered.
+   * @return number of names
+   */
+  synchronized int getCount() {
+    return entries.size();
+  }
+
+  private static String toKey(String identity, String regionName, String name) {
+    return identity + "|" + regionName + "|" + name;
+  }
+
+  private static final class Failure {
+    private final Reason reason;
+    private final long expiresAt;
+
+    Failure(Reason reason, long expiresAt) {
+      this.reason = reason;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
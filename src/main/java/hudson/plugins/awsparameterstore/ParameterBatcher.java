@@ -0,0 +1,186 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller-wide batcher for single parameter lookups. Lookups for the same credentials and region
+ * that arrive within a short window, for example from concurrent builds or parallel branches, are
+ * gathered into one batch of up to {@value AwsParameterStoreService#GET_PARAMETERS_MAX_NAMES} names
+ * and loaded together. A batch is loaded as soon as it is full, otherwise when its window closes.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class ParameterBatcher {
+
+  /**
+   * Milliseconds a batch waits for more lookups before it is loaded.
+   */
+  static int WINDOW_MILLIS = Integer.getInteger(ParameterBatcher.class.getName() + ".windowMillis", 5);
+
+  /**
+   * Loads the values of a batch of parameter names.
+   */
+  interface Loader {
+    /**
+     * Loads parameter values.
+     *
+     * @param names  parameter names
+     * @return values by parameter name; names that could not be loaded are absent
+     * @throws Exception if the batch cannot be loaded
+     */
+    Map<String,String> load(List<String> names) throws Exception;
+  }
+
+  private static final ParameterBatcher INSTANCE = new ParameterBatcher();
+
+  private final Map<String,Batch> batches = new HashMap<String,Batch>();
+
+  /**
+   * Gets the {@link ParameterBatcher} singleton.
+   * @return parameter batcher
+   */
+  static ParameterBatcher get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Gets the value of a parameter, adding it to the open batch for <code>key</code>, or opening a
+   * batch that is loaded by <code>loader</code>, and waiting for the batch to be loaded.
+   *
+   * @param key     batch key, identifying the credentials and region
+   * @param name    parameter name
+   * @param loader  loads the batch, if this lookup opens it
+   * @return parameter value, or <code>null</code> if it could not be loaded
+   * @throws Exception if the batch cannot be loaded or the wait was interrupted
+   */
+  String get(String key, String name, Loader loader) throws Exception {
+    Batch batch;
+    synchronized(this) {
+      batch = batches.get(key);
+      if(batch == null) {
+        batch = new Batch(key, loader);
+        try {
+          FetchExecutor.trySubmit(batch);
+          batches.put(key, batch);
+        } catch(RejectedExecutionException e) {
+          batch = null;
+        }
+      }
+      if(batch != null) {
+        batch.names.add(name);
+        if(batch.names.size() >= AwsParameterStoreService.GET_PARAMETERS_MAX_NAMES) {
+          batches.remove(key);
+          notifyAll();
+        }
+      }
+    }
+    if(batch == null) {
+      // no thread is free to hold a batch open, so load the name on its own
+      final Map<String,String> values = loader.load(Collections.singletonList(name));
+      return values == null ? null : values.get(name);
+    }
+    return batch.get(name);
+  }
+
+  /**
+   * Gets the number of open batches.
+   * @return number of open batches
+   */
+  synchronized int getOpen() {
+    return batches.size();
+  }
+
+  /**
+   * A batch of names that are loaded together.
+   */
+  private final class Batch implements Callable<Void> {
+    private final String key;
+    private final Loader loader;
+    private final Set<String> names = new LinkedHashSet<String>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private Map<String,String> values;
+    private Exception error;
+
+    Batch(String key, Loader loader) {
+      this.key = key;
+      this.loader = loader;
+    }
+
+    /**
+     * Waits for the window to close or the batch to fill, then loads it.
+     */
+    @Override
+    public Void call() {
+      final List<String> batchNames;
+      synchronized(ParameterBatcher.this) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+        long remaining;
+        while(batches.get(key) == this && (remaining = deadline - System.nanoTime()) > 0) {
+          try {
+            TimeUnit.NANOSECONDS.timedWait(ParameterBatcher.this, remaining);
+          } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+        }
+        if(batches.get(key) == this) {
+          batches.remove(key);
+        }
+        batchNames = new ArrayList<String>(names);
+      }
+      try {
+        values = loader.load(batchNames);
+      } catch(Exception e) {
+        error = e;
+      } finally {
+        loaded.countDown();
+      }
+      return null;
+    }
+
+    /**
+     * Waits for the batch to be loaded and gets a value from it.
+     */
+    String get(String name) throws Exception {
+      loaded.await();
+      if(error != null) {
+        throw error;
+      }
+      return values == null ? null : values.get(name);
+    }
+  }
+}
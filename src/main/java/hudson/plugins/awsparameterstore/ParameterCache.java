@@ -0,0 +1,283 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller-wide cache of {@link ParameterSnapshot}s by {@link PathKey}. Entries expire after a time
+ * to live and the least recently used entries are evicted once the cache grows beyond its size limit.
+ * A time to live of zero disables the cache.
+ * <p>
+ * Expired entries are kept for a further stale window: for <code>staleWhileRevalidate</code> seconds
+ * they may be served while they are refreshed, and for <code>staleIfError</code> seconds they may be
+ * served if they cannot be refreshed.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class ParameterCache {
+
+  private static final ParameterCache INSTANCE = new ParameterCache();
+
+  private final LinkedHashMap<PathKey,ParameterSnapshot> snapshots = new LinkedHashMap<PathKey,ParameterSnapshot>(16, 0.75f, true);
+  private long ttlMillis = TimeUnit.SECONDS.toMillis(AwsParameterStoreConfiguration.DEFAULT_CACHE_TTL);
+  private long maxSize = 1024L * AwsParameterStoreConfiguration.DEFAULT_CACHE_MAX_SIZE;
+  private long staleWhileRevalidateMillis = TimeUnit.SECONDS.toMillis(AwsParameterStoreConfiguration.DEFAULT_CACHE_STALE_WHILE_REVALIDATE);
+  private long staleIfErrorMillis = TimeUnit.SECONDS.toMillis(AwsParameterStoreConfiguration.DEFAULT_CACHE_STALE_IF_ERROR);
+  private long size;
+  private long hits;
+  private long misses;
+
+  /**
+   * Gets the {@link ParameterCache} singleton.
+   * @return parameter cache
+   */
+  static ParameterCache get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Sets the cache limits, evicting entries if the cache is now too big.
+   *
+   * @param ttl      time to live in seconds, zero to disable the cache
+   * @param maxSize  maximum size in kilobytes
+   */
+  synchronized void setLimits(int ttl, int maxSize) {
+    this.ttlMillis = TimeUnit.SECONDS.toMillis(ttl);
+    this.maxSize = 1024L * maxSize;
+    if(ttlMillis <= 0) {
+      clear();
+    } else {
+      trim();
+    }
+  }
+
+  /**
+   * Sets how long expired entries are kept, evicting entries that are now too old.
+   *
+   * @param staleWhileRevalidate  seconds an expired entry may be served while it is refreshed
+   * @param staleIfError          seconds an expired entry may be served if it cannot be refreshed
+   */
+  synchronized void setStaleLimits(int staleWhileRevalidate, int staleIfError) {
+    this.staleWhileRevalidateMillis = TimeUnit.SECONDS.toMillis(Math.max(0, staleWhileRevalidate));
+    this.staleIfErrorMillis = TimeUnit.SECONDS.toMillis(Math.max(0, staleIfError));
+    final Iterator<Map.Entry<PathKey,ParameterSnapshot>> iterator = snapshots.entrySet().iterator();
+    while(iterator.hasNext()) {
+      final ParameterSnapshot snapshot = iterator.next().getValue();
+      if(getAge(snapshot) >= ttlMillis + getStaleMillis()) {
+        size -= snapshot.getSize();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Checks whether the cache is enabled.
+   * @return <code>true</code> if the time to live is greater than zero
+   */
+  synchronized boolean isEnabled() {
+    return ttlMillis > 0;
+  }
+
+  /**
+   * Gets the time to live.
+   * @return time to live in milliseconds
+   */
+  synchronized long getTimeToLive() {
+    return ttlMillis;
+  }
+
+  /**
+   * Gets a snapshot whether or not it has expired.
+   *
+   * @param key  path key
+   * @return snapshot or <code>null</code> if there is none
+   */
+  synchronized ParameterSnapshot peek(PathKey key) {
+    return snapshots.get(key);
+  }
+
+  /**
+   * Gets an unexpired snapshot.
+   *
+   * @param key  path key
+   * @return snapshot or <code>null</code> if there is none or it has expired
+   */
+  synchronized ParameterSnapshot get(PathKey key) {
+    return get(key, 0);
+  }
+
+  /**
+   * Gets a snapshot that has not expired, or that expired less than <code>staleWhileRevalidate</code>
+   * seconds ago. The caller is expected to refresh an expired snapshot.
+   *
+   * @param key  path key
+   * @return snapshot or <code>null</code> if there is none or it is too old to serve
+   */
+  synchronized ParameterSnapshot getStaleWhileRevalidate(PathKey key) {
+    return get(key, staleWhileRevalidateMillis);
+  }
+
+  /**
+   * Gets a snapshot that has not expired, or that expired less than <code>staleIfError</code>
+   * seconds ago. The caller is expected to have failed to refresh it.
+   *
+   * @param key  path key
+   * @return snapshot or <code>null</code> if there is none or it is too old to serve
+   */
+  synchronized ParameterSnapshot getStaleIfError(PathKey key) {
+    return get(key, staleIfErrorMillis);
+  }
+
+
+  /**
+   * Adds a snapshot, replacing any previous snapshot for <code>key</code>.
+   *
+   * @param key       path key
+   * @param snapshot  parameter snapshot
+   */
+  synchronized void put(PathKey key, ParameterSnapshot snapshot) {
+    if(ttlMillis <= 0) {
+      return;
+    }
+    final ParameterSnapshot previous = snapshots.put(key, snapshot);
+    if(previous != null) {
+      size -= previous.getSize();
+    }
+    size += snapshot.getSize();
+    trim();
+  }
+
+  /**
+   * Removes the snapshot for <code>key</code>.
+   *
+   * @param key  path key
+   */
+  synchronized void remove(PathKey key) {
+    final ParameterSnapshot snapshot = snapshots.remove(key);
+    if(snapshot != null) {
+      size -= snapshot.getSize();
+    }
+  }
+
+  /**
+   * Removes every snapshot.
+   */
+  synchronized void clear() {
+    snapshots.clear();
+    size = 0;
+  }
+
+  /**
+   * Gets the number of snapshots.
+   * @return number of snapshots
+   */
+  synchronized int getCount() {
+    return snapshots.size();
+  }
+
+  /**
+   * Gets the approximate size of all snapshots.
+   * @return size in bytes
+   */
+  synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Counts a hierarchy that was served from the cache.
+   */
+  synchronized void recordHit() {
+    hits++;
+  }
+
+  /**
+   * Counts a hierarchy that had to be fetched while the cache was enabled.
+   */
+  synchronized void recordMiss() {
+    misses++;
+  }
+
+  /**
+   * Gets the number of hierarchies served from the cache.
+   * @return cache hits
+   */
+  synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of hierarchies that had to be fetched while the cache was enabled.
+   * @return cache misses
+   */
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets a snapshot that expired less than <code>staleMillis</code> ago, removing it if it is
+   * older than any stale window.
+   */
+  private ParameterSnapshot get(PathKey key, long staleMillis) {
+    final ParameterSnapshot snapshot = snapshots.get(key);
+    if(snapshot == null) {
+      return null;
+    }
+    final long age = getAge(snapshot);
+    if(age >= ttlMillis + getStaleMillis()) {
+      remove(key);
+      return null;
+    }
+    return age < ttlMillis + staleMillis ? snapshot : null;
+  }
+
+  /**
+   * Gets how long expired snapshots are kept.
+   */
+  private long getStaleMillis() {
+    return Math.max(staleWhileRevalidateMillis, staleIfErrorMillis);
+  }
+
+  /**
+   * Gets the age of a snapshot in milliseconds.
+   */
+  private static long getAge(ParameterSnapshot snapshot) {
+    return System.currentTimeMillis() - snapshot.getFetchedAt();
+  }
+
+  /**
+   * Evicts least recently used snapshots until the cache is within its size limit.
+   */
+  private void trim() {
+    final Iterator<Map.Entry<PathKey,ParameterSnapshot>> iterator = snapshots.entrySet().iterator();
+    while(size > maxSize && iterator.hasNext()) {
+      size -= iterator.next().getValue().getSize();
+      iterator.remove();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable list of parameters fetched at a point in time.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class ParameterSnapshot {
+
+  private static final int PARAMETER_OVERHEAD_BYTES = 64;
+
+  private final List<Parameter> parameters;
+  private final long fetchedAt;
+  private final long size;
+
+  /**
+   * Creates a new {@link ParameterSnapshot}.
+   *
+   * @param parameters  fetched parameters
+   * @param fetchedAt   time the parameters were fetched in milliseconds
+   */
+  ParameterSnapshot(List<Parameter> parameters, long fetchedAt) {
+    this.parameters = Collections.unmodifiableList(parameters);
+    this.fetchedAt = fetchedAt;
+    long size = 0;
+    for(Parameter parameter : parameters) {
+      size += PARAMETER_OVERHEAD_BYTES + 2 * (length(parameter.getName()) + length(parameter.getValue()));
+    }
+    this.size = size;
+  }
+
+  /**
+   * Gets the parameters.
+   * @return unmodifiable list of parameters
+   */
+  List<Parameter> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Gets the time the parameters were fetched.
+   * @return time in milliseconds
+   */
+  long getFetchedAt() {
+    return fetchedAt;
+  }
+
+  /**
+   * Gets the approximate size of the snapshot in memory.
+   * @return size in bytes
+   */
+  long getSize() {
+    return size;
+  }
+
+  private static int length(String s) {
+    return s == null ? 0 : s.length();
+  }
+}
@@ -0,0 +1,117 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Where parameters are fetched from. The {@link AwsParameterStoreService} only fetches parameters
+ * through a {@link Client} from a {@link ParameterSource}, and applies rate limiting, retries and
+ * caching on top of it. The default source is AWS Systems Manager ({@link SsmParameterSource});
+ * a plugin can contribute a source with a higher ordinal to replace it.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public abstract class ParameterSource implements ExtensionPoint {
+
+  private static final ParameterSource DEFAULT = new SsmParameterSource();
+
+  /**
+   * Gets a client for one set of credentials in a region.
+   *
+   * @param credentialsProvider  AWS credentials provider or <code>null</code> for the default chain
+   * @param credentialsIdentity  stable identity of the credentials, e.g. a Jenkins credentials id
+   * @param regionName           AWS region name or <code>null</code> for the default region
+   * @return client
+   */
+  public abstract Client getClient(AWSCredentialsProvider credentialsProvider, String credentialsIdentity, String regionName);
+
+  /**
+   * Gets the {@link ParameterSource} with the highest ordinal.
+   * @return parameter source, {@link SsmParameterSource} if Jenkins is not running
+   */
+  public static ParameterSource get() {
+    final Jenkins jenkins = Jenkins.getInstance();
+    if(jenkins != null) {
+      final ExtensionList<ParameterSource> sources = jenkins.getExtensionList(ParameterSource.class);
+      if(sources != null && !sources.isEmpty()) {
+        return sources.get(0);
+      }
+    }
+    return DEFAULT;
+  }
+
+  /**
+   * The parameter operations used by this plugin, with the same requests and results as
+   * the AWS Systems Manager API.
+   */
+  public interface Client {
+
+    /**
+     * Lists parameter metadata.
+     *
+     * @param request  describe parameters request
+     * @return a page of parameter metadata
+     */
+    DescribeParametersResult describeParameters(DescribeParametersRequest request);
+
+    /**
+     * Gets one parameter.
+     *
+     * @param request  get parameter request
+     * @return the parameter
+     */
+    GetParameterResult getParameter(GetParameterRequest request);
+
+    /**
+     * Gets several parameters by name.
+     *
+     * @param request  get parameters request
+     * @return the parameters, and any names that are invalid
+     */
+    GetParametersResult getParameters(GetParametersRequest request);
+
+    /**
+     * Gets the parameters in a hierarchy.
+     *
+     * @param request  get parameters by path request
+     * @return a page of parameters
+     */
+    GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request);
+  }
+}
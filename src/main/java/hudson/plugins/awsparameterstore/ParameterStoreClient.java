@@ -0,0 +1,243 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wraps a {@link ParameterSource.Client} for use by a build. Every call waits for the shared
+ * {@link RateLimiter} and reports success or throttling back to it. Calls that fail with a
+ * retryable error are retried with decorrelated jitter while the build's {@link RetryBudget}
+ * lasts, and fail fast while the endpoint's {@link CircuitBreaker} is open. Calls, retries and
+ * throttled calls are counted by the build's {@link FetchTelemetry}, and every call is reported
+ * to each {@link FetchListener}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class ParameterStoreClient implements ParameterSource.Client {
+
+  private static final Logger LOGGER = Logger.getLogger(ParameterStoreClient.class.getName());
+
+  private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+  private final ParameterSource.Client client;
+  private final String regionName;
+  private final RateLimiter rateLimiter;
+  private final CircuitBreaker circuitBreaker;
+  private final RetryBudget retryBudget;
+  private final FetchTelemetry telemetry;
+
+  /**
+   * Creates a new {@link ParameterStoreClient}.
+   *
+   * @param client          parameter source client
+   * @param rateLimiter     rate limiter for the client's credentials and region
+   * @param circuitBreaker  circuit breaker for the client's endpoint
+   * @param retryBudget     retry budget for the build
+   */
+  ParameterStoreClient(ParameterSource.Client client, RateLimiter rateLimiter, CircuitBreaker circuitBreaker, RetryBudget retryBudget) {
+    this(client, null, rateLimiter, circuitBreaker, retryBudget, null);
+  }
+
+  /**
+   * Creates a new {@link ParameterStoreClient}.
+   *
+   * @param client          parameter source client
+   * @param regionName      AWS region name of the client, or <code>null</code> if it is not known
+   * @param rateLimiter     rate limiter for the client's credentials and region
+   * @param circuitBreaker  circuit breaker for the client's endpoint
+   * @param retryBudget     retry budget for the build
+   * @param telemetry       telemetry for the build, or <code>null</code> not to record calls
+   */
+  ParameterStoreClient(ParameterSource.Client client, String regionName, RateLimiter rateLimiter, CircuitBreaker circuitBreaker, RetryBudget retryBudget, FetchTelemetry telemetry) {
+    this.client = client;
+    this.regionName = regionName;
+    this.rateLimiter = rateLimiter;
+    this.circuitBreaker = circuitBreaker;
+    this.retryBudget = retryBudget;
+    this.telemetry = telemetry;
+  }
+
+  @Override
+  public DescribeParametersResult describeParameters(final DescribeParametersRequest request) {
+    return invoke("DescribeParameters", new Operation<DescribeParametersResult>() {
+      @Override
+      public DescribeParametersResult call() {
+        return client.describeParameters(request);
+      }
+    });
+  }
+
+  @Override
+  public GetParameterResult getParameter(final GetParameterRequest request) {
+    return invoke("GetParameter", new Operation<GetParameterResult>() {
+      @Override
+      public GetParameterResult call() {
+        return client.getParameter(request);
+      }
+    });
+  }
+
+  @Override
+  public GetParametersResult getParameters(final GetParametersRequest request) {
+    return invoke("GetParameters", new Operation<GetParametersResult>() {
+      @Override
+      public GetParametersResult call() {
+        return client.getParameters(request);
+      }
+    });
+  }
+
+  @Override
+  public GetParametersByPathResult getParametersByPath(final GetParametersByPathRequest request) {
+    return invoke("GetParametersByPath", new Operation<GetParametersByPathResult>() {
+      @Override
+      public GetParametersByPathResult call() {
+        return client.getParametersByPath(request);
+      }
+    });
+  }
+
+  /**
+   * Gets the number of calls to AWS Parameter Store in progress across the controller.
+   * @return calls in progress
+   */
+  static int getInFlight() {
+    return IN_FLIGHT.get();
+  }
+
+  /**
+   * Calls <code>operation</code> once the rate limiter allows it, retrying retryable failures.
+   *
+   * @param name       operation name, e.g. <code>GetParametersByPath</code>
+   * @param operation  the AWS call
+   * @return the result of the call
+   */
+  private <T> T invoke(String name, Operation<T> operation) {
+    long delayMillis = 0;
+    while(true) {
+      final boolean trial = circuitBreaker.checkAllowed();
+      try {
+        rateLimiter.acquire();
+        if(telemetry != null) {
+          telemetry.addCall(name);
+        }
+        final T result = call(name, operation);
+        rateLimiter.onSuccess();
+        circuitBreaker.onSuccess();
+        return result;
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AbortedException("Interrupted while waiting for AWS Parameter Store rate limit", e);
+      } catch(RuntimeException e) {
+        final boolean throttled = AwsErrors.isThrottling(e);
+        if(throttled) {
+          rateLimiter.onThrottled();
+          if(telemetry != null) {
+            telemetry.addThrottle();
+          }
+        }
+        if(!AwsErrors.isRetryable(e)) {
+          // the endpoint answered, so it is healthy even though the call failed
+          circuitBreaker.onSuccess();
+          throw e;
+        }
+        if(!throttled || trial) {
+          // a throttled trial has not shown the endpoint is healthy
+          circuitBreaker.onFailure();
+        }
+        delayMillis = RetryBudget.nextDelay(delayMillis);
+        if(!retryBudget.tryConsume(delayMillis)) {
+          throw e;
+        }
+        if(telemetry != null) {
+          telemetry.addRetry();
+        }
+        LOGGER.log(Level.FINE, "Retrying AWS Parameter Store call in " + delayMillis + "ms: " + e.getMessage());
+        sleep(delayMillis);
+      } finally {
+        if(trial) {
+          circuitBreaker.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Makes a single call, counting it as in flight and reporting it to each {@link FetchListener}.
+   *
+   * @param name       operation name
+   * @param operation  the AWS call
+   * @return the result of the call
+   */
+  private <T> T call(String name, Operation<T> operation) {
+    final long start = System.nanoTime();
+    IN_FLIGHT.incrementAndGet();
+    final T result;
+    try {
+      result = operation.call();
+    } catch(RuntimeException e) {
+      FetchListener.fireCall(name, regionName, System.nanoTime() - start, e);
+      throw e;
+    } finally {
+      IN_FLIGHT.decrementAndGet();
+    }
+    FetchListener.fireCall(name, regionName, System.nanoTime() - start, null);
+    return result;
+  }
+
+  /**
+   * Sleeps before a retry.
+   *
+   * @param delayMillis  delay in milliseconds
+   */
+  private static void sleep(long delayMillis) {
+    try {
+      Thread.sleep(delayMillis);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AbortedException("Interrupted while waiting to retry AWS Parameter Store call", e);
+    }
+  }
+
+  /**
+   * A single AWS call.
+   */
+  private interface Operation<T> {
+    T call();
+  }
+}
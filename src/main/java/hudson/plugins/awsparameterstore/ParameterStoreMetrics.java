@@ -0,0 +1,116 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.RatioGauge;
+
+import hudson.Extension;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.metrics.api.MetricProvider;
+import jenkins.metrics.api.Metrics;
+
+/**
+ * Publishes AWS Parameter Store metrics through the Metrics plugin, when it is installed:
+ * <ul>
+ *   <li><code>aws-parameter-store.&lt;region&gt;.&lt;operation&gt;.duration</code> - call latency timer</li>
+ *   <li><code>aws-parameter-store.&lt;region&gt;.&lt;operation&gt;.throttles</code> - throttled calls</li>
+ *   <li><code>aws-parameter-store.&lt;region&gt;.&lt;operation&gt;.errors</code> - other failed calls</li>
+ *   <li><code>aws-parameter-store.calls.in-flight</code> - calls in progress</li>
+ *   <li><code>aws-parameter-store.cache.hit-ratio</code>, <code>.size</code> and <code>.count</code> - parameter cache</li>
+ * </ul>
+ *
+ * @author Rik Turnbull
+ *
+ */
+@Extension(optional = true)
+public class ParameterStoreMetrics extends MetricProvider {
+
+  private static final String PREFIX = "aws-parameter-store";
+
+  private final MetricSet metricSet = new MetricSet() {
+    @Override
+    public Map<String,Metric> getMetrics() {
+      final Map<String,Metric> metrics = new HashMap<String,Metric>();
+      metrics.put(MetricRegistry.name(PREFIX, "calls", "in-flight"), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return ParameterStoreClient.getInFlight();
+        }
+      });
+      metrics.put(MetricRegistry.name(PREFIX, "cache", "hit-ratio"), new RatioGauge() {
+        @Override
+        protected Ratio getRatio() {
+          final ParameterCache cache = ParameterCache.get();
+          final long hits = cache.getHits();
+          return Ratio.of(hits, hits + cache.getMisses());
+        }
+      });
+      metrics.put(MetricRegistry.name(PREFIX, "cache", "size"), new Gauge<Long>() {
+        @Override
+        public Long getValue() {
+          return ParameterCache.get().getSize();
+        }
+      });
+      metrics.put(MetricRegistry.name(PREFIX, "cache", "count"), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return ParameterCache.get().getCount();
+        }
+      });
+      return metrics;
+    }
+  };
+
+  @Override
+  public MetricSet getMetricSet() {
+    return metricSet;
+  }
+
+  /**
+   * Records the latency and outcome of each call by region and operation.
+   */
+  @Extension(optional = true)
+  public static final class CallMetrics extends FetchListener {
+    @Override
+    public void onCall(String operation, String regionName, long nanos, Exception error) {
+      final MetricRegistry registry = Metrics.metricRegistry();
+      if(registry == null) {
+        return;
+      }
+      final String prefix = MetricRegistry.name(PREFIX, regionName == null ? "unknown" : regionName, operation);
+      registry.timer(MetricRegistry.name(prefix, "duration")).update(nanos, TimeUnit.NANOSECONDS);
+      if(error != null) {
+        registry.meter(MetricRegistry.name(prefix, AwsErrors.isThrottling(error) ? "throttles" : "errors")).mark();
+      }
+    }
+  }
+}
@@ -0,0 +1,347 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches the parameters in a hierarchy using <code>getParametersByPath</code>. Small hierarchies take
+ * a single page. Larger recursive hierarchies are split into the direct children of the path, found
+ * in the first page and listed with <code>describeParameters</code>, and each child sub-tree is fetched
+ * by at most {@link #CONCURRENCY} workers while the rest are still being listed. If the hierarchy
+ * cannot be described the remaining pages are fetched one after another. Either way parameters are
+ * returned sorted by name.
+ * <p>
+ * A hierarchy that has been fetched before can be revalidated instead: its parameter versions are
+ * listed with <code>describeParameters</code>, which does not decrypt anything, and only parameters
+ * that are new or whose version has changed are fetched with <code>getParameters</code>.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class PathCrawler {
+
+  /**
+   * Maximum sub-trees fetched at the same time by one crawl.
+   */
+  static int CONCURRENCY = Integer.getInteger(PathCrawler.class.getName() + ".concurrency", 8);
+
+  private static final Logger LOGGER = Logger.getLogger(PathCrawler.class.getName());
+
+  private static final int DESCRIBE_PARAMETERS_MAX_RESULTS = 50;
+  private static final int GET_PARAMETERS_MAX_NAMES = 10;
+
+  private static final GetParametersByPathRequest END = new GetParametersByPathRequest();
+
+  private static final Comparator<Parameter> BY_NAME = new Comparator<Parameter>() {
+    @Override
+    public int compare(Parameter p1, Parameter p2) {
+      return p1.getName().compareTo(p2.getName());
+    }
+  };
+
+  private final ParameterSource.Client client;
+  private final PathKey key;
+
+  /**
+   * Creates a new {@link PathCrawler}.
+   *
+   * @param client  parameter source client
+   * @param key     path key
+   */
+  PathCrawler(ParameterSource.Client client, PathKey key) {
+    this.client = client;
+    this.key = key;
+  }
+
+  /**
+   * Fetches every parameter in the hierarchy.
+   *
+   * @return parameters within the hierarchy, sorted by name
+   * @throws Exception if the parameters cannot be fetched
+   */
+  List<Parameter> fetch() throws Exception {
+    final GetParametersByPathRequest getParametersByPathRequest = newRequest(key.getPath(), key.isRecursive());
+    final GetParametersByPathResult getParametersByPathResult = client.getParametersByPath(getParametersByPathRequest);
+    List<Parameter> parameters = null;
+    if(getParametersByPathResult.getNextToken() == null) {
+      parameters = new ArrayList<Parameter>(getParametersByPathResult.getParameters());
+    } else if(key.isRecursive()) {
+      parameters = fetchInParallel(getParametersByPathResult.getParameters());
+    }
+
+    if(parameters == null) {
+      parameters = new ArrayList<Parameter>(getParametersByPathResult.getParameters());
+      getParametersByPathRequest.setNextToken(getParametersByPathResult.getNextToken());
+      fetchPages(getParametersByPathRequest, parameters);
+    }
+    Collections.sort(parameters, BY_NAME);
+    return parameters;
+  }
+
+  /**
+   * Fetches every parameter in the hierarchy, reusing parameters from <code>previous</code> whose
+   * version has not changed. If the hierarchy cannot be described, or the changed parameters cannot
+   * be fetched, every parameter is fetched.
+   *
+   * @param previous  an earlier snapshot of the hierarchy
+   * @return parameters within the hierarchy, sorted by name
+   * @throws Exception if the parameters cannot be fetched
+   */
+  List<Parameter> revalidate(ParameterSnapshot previous) throws Exception {
+    final Map<String,Long> versions = describeVersions();
+    if(versions == null) {
+      return fetch();
+    }
+
+    final Map<String,Parameter> unchanged = new HashMap<String,Parameter>();
+    for(Parameter parameter : previous.getParameters()) {
+      if(parameter.getVersion() != null && parameter.getVersion().equals(versions.get(parameter.getName()))) {
+        unchanged.put(parameter.getName(), parameter);
+      }
+    }
+
+    final List<Parameter> parameters = new ArrayList<Parameter>(unchanged.values());
+    final List<String> changed = new ArrayList<String>();
+    for(String name : versions.keySet()) {
+      if(!unchanged.containsKey(name)) {
+        changed.add(name);
+      }
+    }
+    try {
+      for(int i = 0; i < changed.size(); i += GET_PARAMETERS_MAX_NAMES) {
+        final GetParametersResult getParametersResult = client.getParameters(new GetParametersRequest().
+          withNames(changed.subList(i, Math.min(i + GET_PARAMETERS_MAX_NAMES, changed.size()))).
+          withWithDecryption(key.isWithDecryption()));
+        // parameters deleted since they were described are reported as invalid and left out
+        parameters.addAll(getParametersResult.getParameters());
+      }
+    } catch(Exception e) {
+      LOGGER.log(Level.FINE, "Cannot get changed parameters in " + key.getPath() + ", fetching all parameters: " + e.getMessage(), e);
+      return fetch();
+    }
+    LOGGER.log(Level.FINE, "Revalidated " + key.getPath() + ": " + changed.size() + " of " + versions.size() + " parameters changed");
+    Collections.sort(parameters, BY_NAME);
+    return parameters;
+  }
+
+  /**
+   * Lists the version of every parameter in the hierarchy.
+   *
+   * @return versions by parameter name, or <code>null</code> if the hierarchy cannot be described
+   */
+  private Map<String,Long> describeVersions() {
+    final Map<String,Long> versions = new HashMap<String,Long>();
+    try {
+      final DescribeParametersRequest describeParametersRequest = new DescribeParametersRequest().
+        withMaxResults(DESCRIBE_PARAMETERS_MAX_RESULTS).
+        withParameterFilters(new ParameterStringFilter().withKey("Path").
+                                                         withOption(key.isRecursive() ? "Recursive" : "OneLevel").
+                                                         withValues(getDescribePath(key.getPath())));
+      do {
+        final DescribeParametersResult describeParametersResult = client.describeParameters(describeParametersRequest);
+        for(ParameterMetadata metadata : describeParametersResult.getParameters()) {
+          versions.put(metadata.getName(), metadata.getVersion());
+        }
+        describeParametersRequest.setNextToken(describeParametersResult.getNextToken());
+      } while(describeParametersRequest.getNextToken() != null);
+    } catch(Exception e) {
+      LOGGER.log(Level.FINE, "Cannot describe " + key.getPath() + ", fetching all parameters: " + e.getMessage(), e);
+      return null;
+    }
+    return versions;
+  }
+
+  /**
+   * Fetches the parameters directly under the path, and each child hierarchy recursively, in parallel.
+   * Child hierarchies seen in the first page are fetched straight away, and the rest as soon as
+   * <code>describeParameters</code> lists them, so fetching overlaps describing.
+   *
+   * @param firstPage  parameters in the first page of the hierarchy
+   * @return parameters within the hierarchy, or <code>null</code> if the hierarchy cannot be described
+   * @throws Exception if any sub-tree cannot be fetched
+   */
+  private List<Parameter> fetchInParallel(List<Parameter> firstPage) throws Exception {
+    final String prefix = getPrefix();
+    final Set<String> children = new HashSet<String>();
+    final BlockingQueue<GetParametersByPathRequest> requests = new LinkedBlockingQueue<GetParametersByPathRequest>();
+    final Map<String,Parameter> parameters = new ConcurrentHashMap<String,Parameter>();
+    final AtomicBoolean failed = new AtomicBoolean();
+
+    requests.add(newRequest(key.getPath(), false));
+    for(Parameter parameter : firstPage) {
+      addChild(parameter.getName(), prefix, children, requests);
+    }
+
+    final Callable<Void> worker = new Callable<Void>() {
+      @Override
+      public Void call() throws InterruptedException {
+        GetParametersByPathRequest request;
+        while((request = requests.take()) != END) {
+          if(failed.get()) {
+            continue;
+          }
+          final List<Parameter> page = new ArrayList<Parameter>();
+          try {
+            fetchPages(request, page);
+          } catch(RuntimeException e) {
+            failed.set(true);
+            throw e;
+          }
+          for(Parameter parameter : page) {
+            parameters.put(parameter.getName(), parameter);
+          }
+        }
+        return null;
+      }
+    };
+    // workers wait for requests, so only start them on threads of their own
+    final List<Future<Void>> workers = new ArrayList<Future<Void>>();
+    try {
+      for(int i = 1; i < Math.max(1, CONCURRENCY); i++) {
+        workers.add(FetchExecutor.trySubmit(worker));
+      }
+    } catch(RejectedExecutionException e) {
+      LOGGER.log(Level.FINE, "Fetching " + key.getPath() + " with " + (workers.size() + 1) + " workers");
+    }
+
+    boolean described = false;
+    try {
+      final DescribeParametersRequest describeParametersRequest = new DescribeParametersRequest().
+        withMaxResults(DESCRIBE_PARAMETERS_MAX_RESULTS).
+        withParameterFilters(new ParameterStringFilter().withKey("Path").withOption("Recursive").withValues(getDescribePath(key.getPath())));
+      do {
+        final DescribeParametersResult describeParametersResult = client.describeParameters(describeParametersRequest);
+        for(ParameterMetadata metadata : describeParametersResult.getParameters()) {
+          addChild(metadata.getName(), prefix, children, requests);
+        }
+        describeParametersRequest.setNextToken(describeParametersResult.getNextToken());
+      } while(describeParametersRequest.getNextToken() != null && !failed.get());
+      described = true;
+    } catch(Exception e) {
+      LOGGER.log(Level.FINE, "Cannot describe " + key.getPath() + ", fetching pages serially: " + e.getMessage(), e);
+      failed.set(true);
+    } finally {
+      for(int i = 0; i <= workers.size(); i++) {
+        requests.add(END);
+      }
+    }
+
+    try {
+      worker.call();
+      for(Future<Void> future : workers) {
+        future.get();
+      }
+    } catch(ExecutionException e) {
+      failed.set(true);
+      if(e.getCause() instanceof Exception) {
+        throw (Exception)e.getCause();
+      }
+      throw e;
+    } catch(Exception e) {
+      failed.set(true);
+      throw e;
+    }
+    return described ? new ArrayList<Parameter>(parameters.values()) : null;
+  }
+
+  /**
+   * Queues a fetch of the child hierarchy that <code>name</code> is in, the first time it is seen.
+   *
+   * @param name      parameter name
+   * @param prefix    path with a trailing '/'
+   * @param children  child paths already queued
+   * @param requests  queue of fetches
+   */
+  private void addChild(String name, String prefix, Set<String> children, BlockingQueue<GetParametersByPathRequest> requests) {
+    final int slash = name.indexOf('/', prefix.length());
+    if(name.startsWith(prefix) && slash > 0 && children.add(name.substring(0, slash))) {
+      requests.add(newRequest(name.substring(0, slash), true));
+    }
+  }
+
+  /**
+   * Fetches every remaining page of <code>getParametersByPathRequest</code>.
+   *
+   * @param getParametersByPathRequest  request, with the next token if some pages have been fetched
+   * @param parameters                  list to add parameters to
+   */
+  private void fetchPages(GetParametersByPathRequest getParametersByPathRequest, List<Parameter> parameters) {
+    do {
+      final GetParametersByPathResult getParametersByPathResult = client.getParametersByPath(getParametersByPathRequest);
+      parameters.addAll(getParametersByPathResult.getParameters());
+      getParametersByPathRequest.setNextToken(getParametersByPathResult.getNextToken());
+    } while(getParametersByPathRequest.getNextToken() != null);
+  }
+
+  private GetParametersByPathRequest newRequest(String path, boolean recursive) {
+    return new GetParametersByPathRequest().withPath(path).
+                                            withRecursive(recursive).
+                                            withWithDecryption(key.isWithDecryption());
+  }
+
+  /**
+   * Gets the path with a trailing '/', which every parameter name in the hierarchy starts with.
+   */
+  private String getPrefix() {
+    return key.getPath().endsWith("/") ? key.getPath() : key.getPath() + "/";
+  }
+
+  /**
+   * Gets the path without a trailing '/', as expected by the <code>describeParameters</code> path filter.
+   *
+   * @param path  hierarchy path
+   * @return path for the filter
+   */
+  static String getDescribePath(String path) {
+    return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+  }
+}
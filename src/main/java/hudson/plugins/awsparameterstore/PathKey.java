@@ -0,0 +1,104 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+/**
+ * Identifies a <code>getParametersByPath</code> fetch: who is asking, where, and for what.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class PathKey {
+
+  private final String credentialsIdentity;
+  private final String regionName;
+  private final String path;
+  private final boolean recursive;
+  private final boolean withDecryption;
+
+  /**
+   * Creates a new {@link PathKey}.
+   *
+   * @param credentialsIdentity  stable identity of the AWS credentials
+   * @param regionName           AWS region name
+   * @param path                 hierarchy for the parameters
+   * @param recursive            fetch all parameters within a hierarchy
+   * @param withDecryption       decrypt SecureString values
+   */
+  PathKey(String credentialsIdentity, String regionName, String path, boolean recursive, boolean withDecryption) {
+    this.credentialsIdentity = credentialsIdentity;
+    this.regionName = regionName;
+    this.path = path;
+    this.recursive = recursive;
+    this.withDecryption = withDecryption;
+  }
+
+  String getCredentialsIdentity() {
+    return credentialsIdentity;
+  }
+
+  String getRegionName() {
+    return regionName;
+  }
+
+  String getPath() {
+    return path;
+  }
+
+  boolean isRecursive() {
+    return recursive;
+  }
+
+  boolean isWithDecryption() {
+    return withDecryption;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(!(o instanceof PathKey)) {
+      return false;
+    }
+    final PathKey key = (PathKey)o;
+    return recursive == key.recursive &&
+           withDecryption == key.withDecryption &&
+           credentialsIdentity.equals(key.credentialsIdentity) &&
+           regionName.equals(key.regionName) &&
+           path.equals(key.path);
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = credentialsIdentity.hashCode();
+    hashCode = 31 * hashCode + regionName.hashCode();
+    hashCode = 31 * hashCode + path.hashCode();
+    hashCode = 31 * hashCode + (recursive ? 1 : 0);
+    hashCode = 31 * hashCode + (withDecryption ? 1 : 0);
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return credentialsIdentity + "|" + regionName + "|" + path + "|" + recursive + "|" + withDecryption;
+  }
+}
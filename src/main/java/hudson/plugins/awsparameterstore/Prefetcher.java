@@ -0,0 +1,261 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.queue.QueueListener;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.tasks.SimpleBuildWrapper;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Fetches parameters for an {@link AwsParameterStoreBuildWrapper} before it is set up: while
+ * its build is waiting in the queue when <code>prefetch</code> is enabled, or when the build
+ * starts, alongside the SCM checkout, when <code>async</code> is enabled. Prefetches are keyed
+ * by queue item id, which the build later sees as {@link Run#getQueueId()}, and are collected
+ * by the wrapper in <code>setUp</code>. Nothing is fetched early for a wrapper without a credentials
+ * identifier, as its credentials may come from the build environment, and a prefetch that finished
+ * more than {@link #MAX_AGE_SECONDS} before it was collected is not used.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class Prefetcher {
+
+  /**
+   * Maximum number of seconds between a prefetch finishing and being collected.
+   */
+  static int MAX_AGE_SECONDS = Integer.getInteger(Prefetcher.class.getName() + ".maxAgeSeconds", 300);
+
+  private static final Logger LOGGER = Logger.getLogger(Prefetcher.class.getName());
+
+  private static final ConcurrentMap<Long,Prefetch> PREFETCHES = new ConcurrentHashMap<Long,Prefetch>();
+
+  private Prefetcher() {
+  }
+
+  /**
+   * Starts fetching parameters for the queue item <code>queueId</code>, unless a fetch
+   * for it has already been started.
+   *
+   * @param queueId  queue item id
+   * @param wrapper  the build wrapper to fetch parameters for
+   */
+  static void start(long queueId, final AwsParameterStoreBuildWrapper wrapper) {
+    final Prefetch prefetch = new Prefetch(wrapper);
+    if(PREFETCHES.putIfAbsent(queueId, prefetch) == null) {
+      try {
+        FetchExecutor.submitBackground(new Callable<Void>() {
+          @Override
+          public Void call() {
+            prefetch.future.run();
+            return null;
+          }
+        });
+      } catch(RejectedExecutionException e) {
+        LOGGER.log(Level.FINE, "Not prefetching parameters for queue item {0}, too many background fetches", queueId);
+        PREFETCHES.remove(queueId, prefetch);
+        prefetch.future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Removes and returns the parameters prefetched for the queue item <code>queueId</code>,
+   * waiting up to <code>timeout</code> seconds for the prefetch to finish if it is still running.
+   * A prefetch that times out is left to finish, so that a fetch of the same hierarchy made
+   * by the caller can share its result.
+   *
+   * @param queueId  queue item id
+   * @param wrapper  the build wrapper the parameters are for
+   * @param timeout  seconds to wait for the prefetch
+   * @param action   action to add what happened during the prefetch to, or <code>null</code>
+   * @return environment variables, or <code>null</code> if there is no usable prefetch, or it is too old
+   * @throws InterruptedException if interrupted while waiting
+   */
+  static Map<String,String> take(long queueId, AwsParameterStoreBuildWrapper wrapper, int timeout, AwsParameterStoreAction action) throws InterruptedException {
+    final Prefetch prefetch = PREFETCHES.remove(queueId);
+    if(prefetch == null || prefetch.wrapper != wrapper) {
+      return null;
+    }
+    try {
+      final Map<String,String> env = prefetch.future.get(timeout, TimeUnit.SECONDS);
+      if(System.currentTimeMillis() - prefetch.finishedAt >= TimeUnit.SECONDS.toMillis(MAX_AGE_SECONDS)) {
+        LOGGER.log(Level.FINE, "Not using parameters prefetched more than " + MAX_AGE_SECONDS + "s ago");
+        return null;
+      }
+      if(action != null) {
+        action.addAll(prefetch.action);
+      }
+      return env;
+    } catch(CancellationException e) {
+      return null;
+    } catch(ExecutionException e) {
+      LOGGER.log(Level.WARNING, "Cannot prefetch parameters: " + e.getCause().getMessage(), e.getCause());
+      return null;
+    } catch(TimeoutException e) {
+      LOGGER.log(Level.WARNING, "Timed out after " + timeout + "s waiting for prefetched parameters");
+      return null;
+    }
+  }
+
+  /**
+   * Discards any prefetch for the queue item <code>queueId</code>.
+   *
+   * @param queueId  queue item id
+   */
+  static void discard(long queueId) {
+    final Prefetch prefetch = PREFETCHES.remove(queueId);
+    if(prefetch != null) {
+      prefetch.future.cancel(true);
+    }
+  }
+
+  /**
+   * Gets the number of prefetches not yet collected.
+   * @return number of prefetches
+   */
+  static int getPending() {
+    return PREFETCHES.size();
+  }
+
+  /**
+   * Discards all prefetches.
+   */
+  static void clear() {
+    for(Long queueId : PREFETCHES.keySet()) {
+      discard(queueId);
+    }
+  }
+
+  /**
+   * Checks whether parameters can be fetched for <code>wrapper</code> before it is set up, which
+   * needs credentials that do not depend on the build environment.
+   *
+   * @param wrapper  the build wrapper
+   * @return <code>true</code> if the wrapper has a credentials identifier
+   */
+  static boolean canPrefetch(AwsParameterStoreBuildWrapper wrapper) {
+    return !StringUtils.isEmpty(wrapper.getCredentialsId());
+  }
+
+  /**
+   * Gets the {@link AwsParameterStoreBuildWrapper} configured on <code>task</code>.
+   *
+   * @param task  queue task
+   * @return the build wrapper, or <code>null</code> if there is none
+   */
+  static AwsParameterStoreBuildWrapper getBuildWrapper(Object task) {
+    if(task instanceof BuildableItemWithBuildWrappers) {
+      return ((BuildableItemWithBuildWrappers)task).getBuildWrappersList().get(AwsParameterStoreBuildWrapper.class);
+    }
+    return null;
+  }
+
+  /**
+   * A prefetch, created with its future so that it can be collected as soon as it is published.
+   */
+  private static final class Prefetch {
+    private final AwsParameterStoreBuildWrapper wrapper;
+    private final AwsParameterStoreAction action = new AwsParameterStoreAction();
+    private final FutureTask<Map<String,String>> future;
+    private volatile long finishedAt;
+
+    Prefetch(final AwsParameterStoreBuildWrapper wrapper) {
+      this.wrapper = wrapper;
+      this.future = new FutureTask<Map<String,String>>(new Callable<Map<String,String>>() {
+        @Override
+        public Map<String,String> call() {
+          final SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+          wrapper.buildEnvVars(context, new EnvVars(), action);
+          finishedAt = System.currentTimeMillis();
+          return context.getEnv();
+        }
+      });
+    }
+  }
+
+  /**
+   * Starts a prefetch when an item with prefetch enabled enters the queue, and discards
+   * it if the item is cancelled.
+   */
+  @Extension
+  public static final class QueueListenerImpl extends QueueListener {
+    @Override
+    public void onEnterWaiting(Queue.WaitingItem wi) {
+      final AwsParameterStoreBuildWrapper wrapper = getBuildWrapper(wi.task);
+      if(wrapper != null && wrapper.isPrefetch() && canPrefetch(wrapper)) {
+        start(wi.getId(), wrapper);
+      }
+    }
+
+    @Override
+    public void onLeft(Queue.LeftItem li) {
+      if(li.isCancelled()) {
+        discard(li.getId());
+      }
+    }
+  }
+
+  /**
+   * Starts a fetch when a build with async enabled starts, unless it was prefetched while
+   * queued, and discards a prefetch that the build never collected, for example because it
+   * failed before the build wrapper was set up.
+   */
+  @Extension
+  public static final class RunListenerImpl extends RunListener<Run<?,?>> {
+    @Override
+    public void onStarted(Run<?,?> run, TaskListener listener) {
+      final AwsParameterStoreBuildWrapper wrapper = getBuildWrapper(run.getParent());
+      if(wrapper != null && wrapper.isAsync() && canPrefetch(wrapper)) {
+        start(run.getQueueId(), wrapper);
+      }
+    }
+
+    @Override
+    public void onFinalized(Run<?,?> run) {
+      discard(run.getQueueId());
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive token bucket shared by every AWS Parameter Store call for one set of credentials in a region.
+ * The rate grows additively while calls succeed and is halved when AWS throttles a call (AIMD), so that
+ * the controller stays under the SSM transactions per second quota instead of repeatedly exceeding it.
+ * <p>
+ * The quota applies to an AWS account in a region, but limiters are keyed by credentials identity,
+ * as the account behind a set of credentials is not known without an extra STS call for each of
+ * them. Several credentials for one account each have their own limiter, and each halves its rate
+ * when the shared quota is exceeded, so together they still settle below it. Limiters that have not
+ * been used for {@link ClientRegistry#IDLE_TIMEOUT_MINUTES} are evicted with the idle clients.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class RateLimiter {
+
+  /**
+   * Initial calls per second.
+   */
+  static int INITIAL_RATE = Integer.getInteger(RateLimiter.class.getName() + ".initialRate", 20);
+
+  /**
+   * Minimum calls per second.
+   */
+  static int MIN_RATE = Integer.getInteger(RateLimiter.class.getName() + ".minRate", 1);
+
+  /**
+   * Maximum calls per second.
+   */
+  static int MAX_RATE = Integer.getInteger(RateLimiter.class.getName() + ".maxRate", 40);
+
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final ConcurrentMap<String,RateLimiter> LIMITERS = new ConcurrentHashMap<String,RateLimiter>();
+
+  private final double minRate;
+  private final double maxRate;
+  private double rate;
+  private double tokens;
+  private long refilledAt;
+  private long decreasedAt;
+  private volatile long lastUsed = System.currentTimeMillis();
+
+  /**
+   * Creates a new {@link RateLimiter}.
+   *
+   * @param initialRate  initial calls per second
+   * @param minRate      minimum calls per second
+   * @param maxRate      maximum calls per second
+   */
+  RateLimiter(double initialRate, double minRate, double maxRate) {
+    this.minRate = minRate;
+    this.maxRate = Math.max(minRate, maxRate);
+    this.rate = Math.min(this.maxRate, Math.max(minRate, initialRate));
+    this.tokens = rate;
+    this.refilledAt = System.nanoTime();
+    this.decreasedAt = refilledAt - DECREASE_INTERVAL_NANOS;
+  }
+
+  /**
+   * Gets the shared {@link RateLimiter} for <code>credentialsIdentity</code> in <code>regionName</code>.
+   *
+   * @param credentialsIdentity  stable identity of the AWS credentials
+   * @param regionName           AWS region name
+   * @return rate limiter
+   */
+  static RateLimiter get(String credentialsIdentity, String regionName) {
+    final String key = credentialsIdentity + "@" + regionName;
+    RateLimiter limiter = LIMITERS.get(key);
+    if(limiter == null) {
+      final RateLimiter created = new RateLimiter(INITIAL_RATE, MIN_RATE, MAX_RATE);
+      limiter = LIMITERS.putIfAbsent(key, created);
+      if(limiter == null) {
+        limiter = created;
+      }
+    }
+    return limiter;
+  }
+
+  /**
+   * Gets the current rate of every limiter.
+   * @return calls per second by limiter key
+   */
+  static Map<String,Double> getRates() {
+    final Map<String,Double> rates = new TreeMap<String,Double>();
+    for(Map.Entry<String,RateLimiter> entry : LIMITERS.entrySet()) {
+      rates.put(entry.getKey(), entry.getValue().getRate());
+    }
+    return Collections.unmodifiableMap(rates);
+  }
+
+  /**
+   * Removes shared limiters that have not been used for <code>idleMillis</code>.
+   *
+   * @param idleMillis  idle time in milliseconds
+   */
+  static void evict(long idleMillis) {
+    final long cutoff = System.currentTimeMillis() - idleMillis;
+    final Iterator<RateLimiter> iterator = LIMITERS.values().iterator();
+    while(iterator.hasNext()) {
+      if(iterator.next().lastUsed < cutoff) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes every shared limiter.
+   */
+  static void clear() {
+    LIMITERS.clear();
+  }
+
+  /**
+   * Takes a token, waiting until one is available.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  void acquire() throws InterruptedException {
+    lastUsed = System.currentTimeMillis();
+    final long waitNanos;
+    synchronized(this) {
+      refill();
+      // reserve the token now and wait for it outside the lock
+      tokens -= 1;
+      waitNanos = tokens >= 0 ? 0 : (long)(-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+    }
+    if(waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * Records a successful call, increasing the rate by about one call per second, every second.
+   */
+  synchronized void onSuccess() {
+    rate = Math.min(maxRate, rate + 1 / rate);
+  }
+
+  /**
+   * Records a throttled call, halving the rate at most once a second and dropping any burst.
+   */
+  synchronized void onThrottled() {
+    final long now = System.nanoTime();
+    if(now - decreasedAt >= DECREASE_INTERVAL_NANOS) {
+      refill();
+      rate = Math.max(minRate, rate * DECREASE_FACTOR);
+      tokens = Math.min(tokens, 0);
+      decreasedAt = now;
+    }
+  }
+
+  /**
+   * Gets the current rate.
+   * @return calls per second
+   */
+  synchronized double getRate() {
+    return rate;
+  }
+
+  /**
+   * Adds the tokens earned since the last refill, up to one second's worth.
+   */
+  private void refill() {
+    final long now = System.nanoTime();
+    tokens = Math.min(rate, tokens + rate * (now - refilledAt) / TimeUnit.SECONDS.toNanos(1));
+    refilledAt = now;
+  }
+}
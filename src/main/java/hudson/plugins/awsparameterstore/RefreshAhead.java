@@ -0,0 +1,248 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the most requested hierarchies in the {@link ParameterCache} warm by refreshing them
+ * shortly before they expire, so that builds are served from the cache rather than waiting for
+ * AWS. Request counts are halved periodically so that hierarchies that are no longer used drop
+ * out. Refreshes use the same clients, and so the same {@link RateLimiter}s, as build-time fetches.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class RefreshAhead {
+
+  /**
+   * Maximum number of hierarchies kept warm.
+   */
+  static int MAX_KEYS = Integer.getInteger(RefreshAhead.class.getName() + ".maxKeys", 50);
+
+  /**
+   * Maximum number of refreshes running at once.
+   */
+  static int CONCURRENCY = Integer.getInteger(RefreshAhead.class.getName() + ".concurrency", 4);
+
+  /**
+   * Seconds between checks for hierarchies to refresh.
+   */
+  static int PERIOD_SECONDS = Integer.getInteger(RefreshAhead.class.getName() + ".periodSeconds", 10);
+
+  /**
+   * Seconds before expiry that a hierarchy is refreshed, at most half the cache time to live.
+   */
+  static int AHEAD_SECONDS = Integer.getInteger(RefreshAhead.class.getName() + ".aheadSeconds", 30);
+
+  /**
+   * Seconds between halving request counts.
+   */
+  static int DECAY_SECONDS = Integer.getInteger(RefreshAhead.class.getName() + ".decaySeconds", 300);
+
+  private static final Logger LOGGER = Logger.getLogger(RefreshAhead.class.getName());
+
+  private static final ConcurrentMap<PathKey,HotKey> KEYS = new ConcurrentHashMap<PathKey,HotKey>();
+  private static final AtomicInteger RUNNING = new AtomicInteger();
+  private static final AtomicLong LAST_DECAY = new AtomicLong(System.currentTimeMillis());
+
+  private RefreshAhead() {
+  }
+
+  /**
+   * Records a request for a hierarchy.
+   *
+   * @param key        path key
+   * @param refresher  fetches the hierarchy and adds it to the cache, whether or not it has expired
+   */
+  static void record(PathKey key, Callable<ParameterSnapshot> refresher) {
+    HotKey hotKey = KEYS.get(key);
+    if(hotKey == null) {
+      hotKey = new HotKey();
+      final HotKey existing = KEYS.putIfAbsent(key, hotKey);
+      if(existing != null) {
+        hotKey = existing;
+      }
+    }
+    hotKey.refresher = refresher;
+    hotKey.requests.incrementAndGet();
+  }
+
+  /**
+   * Gets the most requested hierarchies, most requested first.
+   * @return up to {@link #MAX_KEYS} path keys
+   */
+  static List<PathKey> getHotKeys() {
+    final List<Map.Entry<PathKey,HotKey>> entries = new ArrayList<Map.Entry<PathKey,HotKey>>(KEYS.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<PathKey,HotKey>>() {
+      @Override
+      public int compare(Map.Entry<PathKey,HotKey> e1, Map.Entry<PathKey,HotKey> e2) {
+        final long r1 = e1.getValue().requests.get();
+        final long r2 = e2.getValue().requests.get();
+        return r1 < r2 ? 1 : (r1 > r2 ? -1 : 0);
+      }
+    });
+    final List<PathKey> keys = new ArrayList<PathKey>();
+    for(int i = 0; i < entries.size() && i < MAX_KEYS; i++) {
+      keys.add(entries.get(i).getKey());
+    }
+    return keys;
+  }
+
+  /**
+   * Starts refreshes of the most requested hierarchies that are cached and about to expire,
+   * up to {@link #CONCURRENCY} at once.
+   *
+   * @return number of refreshes started
+   */
+  static int refresh() {
+    final ParameterCache cache = ParameterCache.get();
+    int started = 0;
+    if(cache.isEnabled()) {
+      final long ttlMillis = cache.getTimeToLive();
+      final long aheadMillis = Math.min(TimeUnit.SECONDS.toMillis(AHEAD_SECONDS), ttlMillis / 2);
+      final long now = System.currentTimeMillis();
+      for(PathKey key : getHotKeys()) {
+        final HotKey hotKey = KEYS.get(key);
+        final ParameterSnapshot snapshot = cache.peek(key);
+        if(hotKey == null || snapshot == null || snapshot.getFetchedAt() + ttlMillis - now > aheadMillis) {
+          continue;
+        }
+        if(RUNNING.get() >= CONCURRENCY) {
+          break;
+        }
+        if(hotKey.refreshing.compareAndSet(false, true)) {
+          RUNNING.incrementAndGet();
+          submit(key, hotKey);
+          started++;
+        }
+      }
+    }
+    decay();
+    return started;
+  }
+
+  /**
+   * Gets the number of hierarchies being tracked.
+   * @return number of hierarchies
+   */
+  static int getCount() {
+    return KEYS.size();
+  }
+
+  /**
+   * Forgets every hierarchy.
+   */
+  static void clear() {
+    KEYS.clear();
+  }
+
+  /**
+   * Refreshes a hierarchy in the background.
+   */
+  private static void submit(final PathKey key, final HotKey hotKey) {
+    final Callable<ParameterSnapshot> refresher = hotKey.refresher;
+    try {
+      FetchExecutor.submitBackground(new Callable<Void>() {
+        @Override
+        public Void call() {
+          try {
+            refresher.call();
+          } catch(Exception e) {
+            LOGGER.log(Level.WARNING, "Cannot refresh parameters by path: " + key.getPath() + ": " + e.getMessage(), e);
+          } finally {
+            hotKey.refreshing.set(false);
+            RUNNING.decrementAndGet();
+          }
+          return null;
+        }
+      });
+    } catch(RejectedExecutionException e) {
+      hotKey.refreshing.set(false);
+      RUNNING.decrementAndGet();
+    }
+  }
+
+  /**
+   * Halves every request count once per {@link #DECAY_SECONDS}, forgetting hierarchies
+   * that are no longer requested.
+   */
+  private static void decay() {
+    final long now = System.currentTimeMillis();
+    final long lastDecay = LAST_DECAY.get();
+    if(now - lastDecay < TimeUnit.SECONDS.toMillis(DECAY_SECONDS) || !LAST_DECAY.compareAndSet(lastDecay, now)) {
+      return;
+    }
+    for(Map.Entry<PathKey,HotKey> entry : KEYS.entrySet()) {
+      final HotKey hotKey = entry.getValue();
+      final long requests = hotKey.requests.get();
+      if(hotKey.requests.addAndGet(-(requests - requests / 2)) <= 0 && !hotKey.refreshing.get()) {
+        KEYS.remove(entry.getKey(), hotKey);
+      }
+    }
+  }
+
+  private static final class HotKey {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Callable<ParameterSnapshot> refresher;
+  }
+
+  /**
+   * Periodically refreshes the most requested hierarchies, and prunes expired snapshots.
+   */
+  @Extension
+  public static final class RefreshWork extends PeriodicWork {
+    @Override
+    public long getRecurrencePeriod() {
+      return TimeUnit.SECONDS.toMillis(PERIOD_SECONDS);
+    }
+
+    @Override
+    protected void doRun() {
+      refresh();
+      final SnapshotStore store = SnapshotStore.get();
+      if(store != null) {
+        store.prune();
+      }
+    }
+  }
+}
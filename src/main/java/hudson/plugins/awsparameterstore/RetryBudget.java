@@ -0,0 +1,96 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry delays with decorrelated jitter, limited by a time budget shared by all the calls of one build.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class RetryBudget {
+
+  /**
+   * Total seconds a build may spend waiting to retry AWS calls.
+   */
+  static int BUDGET_SECONDS = Integer.getInteger(RetryBudget.class.getName() + ".budgetSeconds", 30);
+
+  private static final long BASE_DELAY_MILLIS = 100;
+  private static final long MAX_DELAY_MILLIS = 5000;
+
+  private long remainingMillis;
+
+  /**
+   * Creates a new {@link RetryBudget} of {@link #BUDGET_SECONDS}.
+   */
+  RetryBudget() {
+    this(TimeUnit.SECONDS.toMillis(BUDGET_SECONDS));
+  }
+
+  /**
+   * Creates a new {@link RetryBudget}.
+   *
+   * @param budgetMillis  total milliseconds that may be spent waiting to retry
+   */
+  RetryBudget(long budgetMillis) {
+    this.remainingMillis = budgetMillis;
+  }
+
+  /**
+   * Gets the next delay using decorrelated jitter: a random delay between the base delay
+   * and three times the previous delay, capped at {@link #MAX_DELAY_MILLIS}.
+   *
+   * @param previousDelayMillis  previous delay, or zero for the first retry
+   * @return next delay in milliseconds
+   */
+  static long nextDelay(long previousDelayMillis) {
+    final long upper = Math.max(BASE_DELAY_MILLIS + 1, previousDelayMillis * 3);
+    return Math.min(MAX_DELAY_MILLIS, ThreadLocalRandom.current().nextLong(BASE_DELAY_MILLIS, upper));
+  }
+
+  /**
+   * Takes <code>delayMillis</code> from the budget if there is enough left.
+   *
+   * @param delayMillis  delay in milliseconds
+   * @return <code>true</code> if the delay was taken from the budget
+   */
+  synchronized boolean tryConsume(long delayMillis) {
+    if(delayMillis > remainingMillis) {
+      return false;
+    }
+    remainingMillis -= delayMillis;
+    return true;
+  }
+
+  /**
+   * Gets the remaining budget.
+   * @return remaining milliseconds
+   */
+  synchronized long getRemaining() {
+    return remainingMillis;
+  }
+}
@@ -0,0 +1,93 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the call and
+ * any caller that arrives while it is in flight waits for, and shares, its result.
+ *
+ * @param <K> key type
+ * @param <V> result type
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class SingleFlight<K,V> {
+
+  private final ConcurrentMap<K,FutureTask<V>> calls = new ConcurrentHashMap<K,FutureTask<V>>();
+
+  /**
+   * Runs <code>callable</code> unless a call for <code>key</code> is already in flight,
+   * in which case waits for that call instead.
+   *
+   * @param key       call key
+   * @param callable  the call to make
+   * @return the result of the call
+   * @throws Exception if the call failed or the wait was interrupted
+   */
+  V execute(K key, Callable<V> callable) throws Exception {
+    final FutureTask<V> task = new FutureTask<V>(callable);
+    final FutureTask<V> inFlight = calls.putIfAbsent(key, task);
+    if(inFlight != null) {
+      return get(inFlight);
+    }
+    try {
+      task.run();
+    } finally {
+      calls.remove(key, task);
+    }
+    return get(task);
+  }
+
+  /**
+   * Gets the number of calls in flight.
+   * @return number of calls in flight
+   */
+  int getInFlight() {
+    return calls.size();
+  }
+
+  /**
+   * Gets the result of <code>task</code>, unwrapping any exception it threw.
+   */
+  private V get(FutureTask<V> task) throws Exception {
+    try {
+      return task.get();
+    } catch(ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if(cause instanceof Exception) {
+        throw (Exception)cause;
+      } else if(cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,369 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import jenkins.model.Jenkins;
+import jenkins.security.ConfidentialKey;
+
+/**
+ * Persists {@link ParameterSnapshot}s under <code>JENKINS_HOME</code> so that the {@link ParameterCache}
+ * can be warmed after a restart. Each snapshot is stored in its own file, named by the SHA-256 of its
+ * {@link PathKey}, in a compact binary format encrypted with AES/CBC under a Jenkins confidential key,
+ * with a random IV for each file. Snapshots are written in the background after each fetch and read at
+ * most once per hierarchy after a restart. Files older than the maximum age are pruned by {@link #prune()}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class SnapshotStore {
+
+  private static final Logger LOGGER = Logger.getLogger(SnapshotStore.class.getName());
+
+  private static final int MAGIC = 0x41505353;
+  private static final int FORMAT_VERSION = 2;
+  private static final int MAX_STRING_BYTES = 1024 * 1024;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String CIPHER = "AES/CBC/PKCS5Padding";
+  private static final int IV_BYTES = 16;
+  private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private static final Key KEY = new Key(SnapshotStore.class, "snapshots");
+
+  private static volatile SnapshotStore instance;
+  private static volatile long maxAgeMillis = TimeUnit.SECONDS.toMillis(AwsParameterStoreConfiguration.DEFAULT_CACHE_PERSISTENT_MAX_AGE);
+
+  private final File directory;
+  private final Key key;
+  private final Set<PathKey> loaded = Collections.newSetFromMap(new ConcurrentHashMap<PathKey,Boolean>());
+  private volatile long prunedAt;
+
+  /**
+   * Creates a new {@link SnapshotStore}.
+   *
+   * @param directory  directory for snapshot files
+   * @param key        key to encrypt snapshots with
+   */
+  SnapshotStore(File directory, Key key) {
+    this.directory = directory;
+    this.key = key;
+  }
+
+  /**
+   * Gets the {@link SnapshotStore} for this Jenkins, if snapshots are persisted.
+   * @return snapshot store or <code>null</code> if persistence is disabled or Jenkins is not running
+   */
+  static SnapshotStore get() {
+    if(maxAgeMillis <= 0) {
+      return null;
+    }
+    SnapshotStore store = instance;
+    if(store == null) {
+      final Jenkins jenkins = Jenkins.getInstance();
+      if(jenkins == null || jenkins.getRootDir() == null) {
+        return null;
+      }
+      store = new SnapshotStore(new File(new File(jenkins.getRootDir(), "aws-parameter-store"), "snapshots"), KEY);
+      instance = store;
+    }
+    return store;
+  }
+
+  /**
+   * Sets how long persisted snapshots may be used.
+   *
+   * @param maxAge  maximum age in seconds, zero to disable persistence
+   */
+  static void setMaxAge(int maxAge) {
+    maxAgeMillis = TimeUnit.SECONDS.toMillis(Math.max(0, maxAge));
+  }
+
+  /**
+   * Writes a snapshot in the background, replacing any previous snapshot for <code>pathKey</code>.
+   *
+   * @param pathKey   path key
+   * @param snapshot  parameter snapshot
+   */
+  void saveLater(final PathKey pathKey, final ParameterSnapshot snapshot) {
+    try {
+      FetchExecutor.submitBackground(new Callable<Void>() {
+        @Override
+        public Void call() {
+          try {
+            save(pathKey, snapshot);
+          } catch(Exception e) {
+            LOGGER.log(Level.WARNING, "Cannot save parameters by path: " + pathKey.getPath() + ": " + e.getMessage(), e);
+          }
+          return null;
+        }
+      });
+    } catch(RejectedExecutionException e) {
+      LOGGER.log(Level.FINE, "Not saving parameters by path: " + pathKey.getPath() + ", too many background tasks");
+    }
+  }
+
+
+  /**
+   * Writes a snapshot, replacing any previous snapshot for <code>pathKey</code>.
+   *
+   * @param pathKey   path key
+   * @param snapshot  parameter snapshot
+   * @throws IOException if the snapshot cannot be written
+   */
+  void save(PathKey pathKey, ParameterSnapshot snapshot) throws IOException {
+    if(!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create directory: " + directory);
+    }
+    final File file = getFile(pathKey);
+    final File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+    try {
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        final byte[] iv = new byte[IV_BYTES];
+        RANDOM.nextBytes(iv);
+        out.write(iv);
+        out.flush();
+        final DataOutputStream body = new DataOutputStream(new BufferedOutputStream(new CipherOutputStream(out, getCipher(Cipher.ENCRYPT_MODE, iv))));
+        writeString(body, pathKey.toString());
+        body.writeLong(snapshot.getFetchedAt());
+        body.writeInt(snapshot.getParameters().size());
+        for(Parameter parameter : snapshot.getParameters()) {
+          writeString(body, parameter.getName());
+          writeString(body, parameter.getType());
+          writeString(body, parameter.getValue());
+          body.writeLong(parameter.getVersion() == null ? -1 : parameter.getVersion().longValue());
+        }
+        body.close();
+      } finally {
+        out.close();
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      if(tmp.exists() && !tmp.delete()) {
+        LOGGER.log(Level.FINE, "Cannot delete temporary file: " + tmp);
+      }
+    }
+  }
+
+  /**
+   * Reads the snapshot for <code>pathKey</code> the first time it is asked for since Jenkins started, to
+   * warm the {@link ParameterCache}. After that the cache holds the hierarchy, so disk is not read again.
+   *
+   * @param pathKey  path key
+   * @return snapshot or <code>null</code> if there is no usable snapshot or it has already been read
+   */
+  ParameterSnapshot loadOnce(PathKey pathKey) {
+    return loaded.add(pathKey) ? load(pathKey) : null;
+  }
+
+  /**
+   * Reads the snapshot for <code>pathKey</code>, deleting it if it is too old or unreadable.
+   *
+   * @param pathKey  path key
+   * @return snapshot or <code>null</code> if there is no usable snapshot
+   */
+  ParameterSnapshot load(PathKey pathKey) {
+    final File file = getFile(pathKey);
+    try {
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+          throw new IOException("Unknown snapshot format");
+        }
+        final byte[] iv = new byte[IV_BYTES];
+        in.readFully(iv);
+        final DataInputStream body = new DataInputStream(new BufferedInputStream(new CipherInputStream(in, getCipher(Cipher.DECRYPT_MODE, iv))));
+        if(!pathKey.toString().equals(readString(body))) {
+          return null;
+        }
+        final long fetchedAt = body.readLong();
+        if(System.currentTimeMillis() - fetchedAt >= maxAgeMillis) {
+          delete(file);
+          return null;
+        }
+        final int count = body.readInt();
+        final List<Parameter> parameters = new ArrayList<Parameter>(Math.min(count, 1024));
+        for(int i = 0; i < count; i++) {
+          final Parameter parameter = new Parameter().withName(readString(body)).withType(readString(body)).withValue(readString(body));
+          final long version = body.readLong();
+          parameters.add(version < 0 ? parameter : parameter.withVersion(version));
+        }
+        return new ParameterSnapshot(parameters, fetchedAt);
+      } finally {
+        in.close();
+      }
+    } catch(FileNotFoundException e) {
+      return null;
+    } catch(Exception e) {
+      LOGGER.log(Level.WARNING, "Cannot load parameters by path: " + pathKey.getPath() + ": " + e.getMessage(), e);
+      delete(file);
+      return null;
+    }
+  }
+
+  /**
+   * Deletes snapshot files, and any temporary files left behind, that have not been written for the
+   * maximum age, at most once an hour. Snapshots are only deleted when read otherwise, so those for
+   * hierarchies that are no longer fetched would stay on disk.
+   */
+  void prune() {
+    final long now = System.currentTimeMillis();
+    if(now - prunedAt < PRUNE_INTERVAL_MILLIS) {
+      return;
+    }
+    prunedAt = now;
+    final File[] files = directory.listFiles();
+    if(files != null) {
+      for(File file : files) {
+        if(now - file.lastModified() >= maxAgeMillis) {
+          delete(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets a cipher for a snapshot with the confidential key and <code>iv</code>.
+   */
+  private Cipher getCipher(int mode, byte[] iv) throws IOException {
+    try {
+      final Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(mode, key.getKey(), new IvParameterSpec(iv));
+      return cipher;
+    } catch(GeneralSecurityException e) {
+      throw new IOException("Cannot create snapshot cipher: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Gets the file for a snapshot.
+   */
+  private File getFile(PathKey pathKey) {
+    return new File(directory, Digests.sha256(pathKey.toString()) + ".bin");
+  }
+
+  private static void delete(File file) {
+    if(!file.delete()) {
+      LOGGER.log(Level.FINE, "Cannot delete snapshot: " + file);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if(s == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = s.getBytes(UTF8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if(length < 0) {
+      return null;
+    }
+    if(length > MAX_STRING_BYTES) {
+      throw new IOException("Corrupt snapshot");
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF8);
+  }
+
+  /**
+   * AES key for snapshots, stored as a Jenkins confidential key. {@link jenkins.security.CryptoConfidentialKey}
+   * only offers ciphers without an IV on the Jenkins versions supported, so the key is kept here instead.
+   */
+  static class Key extends ConfidentialKey {
+    private static final int KEY_BYTES = 16;
+
+    private SecretKey secretKey;
+
+    /**
+     * Creates a new {@link Key}.
+     *
+     * @param owner      class the key belongs to
+     * @param shortName  name of the key within <code>owner</code>
+     */
+    Key(Class<?> owner, String shortName) {
+      super(owner, shortName);
+    }
+
+    /**
+     * Gets the key, generating and storing it the first time.
+     *
+     * @return AES key
+     * @throws IOException if the key cannot be loaded or stored
+     */
+    synchronized SecretKey getKey() throws IOException {
+      if(secretKey == null) {
+        byte[] payload = load();
+        if(payload == null || payload.length != KEY_BYTES) {
+          payload = new byte[KEY_BYTES];
+          RANDOM.nextBytes(payload);
+          store(payload);
+        }
+        secretKey = new SecretKeySpec(payload, "AES");
+      }
+      return secretKey;
+    }
+  }
+}
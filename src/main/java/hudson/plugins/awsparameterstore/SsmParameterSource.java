@@ -0,0 +1,91 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+
+import jenkins.model.Jenkins;
+
+/**
+ * The default {@link ParameterSource}: AWS Systems Manager, using shared clients from the
+ * {@link ClientRegistry} and the Jenkins proxy configuration.
+ *
+ * @author Rik Turnbull
+ *
+ */
+@Extension(ordinal = -100)
+public class SsmParameterSource extends ParameterSource {
+
+  @Override
+  public Client getClient(AWSCredentialsProvider credentialsProvider, String credentialsIdentity, String regionName) {
+    ProxyConfiguration proxy = null;
+    Jenkins jenkins = Jenkins.getInstance();
+    if(jenkins != null) {
+      proxy = jenkins.proxy;
+    }
+    return adapt(ClientRegistry.getClient(credentialsIdentity, credentialsProvider, regionName, proxy));
+  }
+
+  /**
+   * Adapts an AWS Simple Systems Management client to a {@link ParameterSource.Client}.
+   *
+   * @param client  AWS Simple Systems Management client
+   * @return parameter source client
+   */
+  static Client adapt(final AWSSimpleSystemsManagement client) {
+    return new Client() {
+      @Override
+      public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+        return client.describeParameters(request);
+      }
+
+      @Override
+      public GetParameterResult getParameter(GetParameterRequest request) {
+        return client.getParameter(request);
+      }
+
+      @Override
+      public GetParametersResult getParameters(GetParametersRequest request) {
+        return client.getParameters(request);
+      }
+
+      @Override
+      public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+        return client.getParametersByPath(request);
+      }
+    };
+  }
+}
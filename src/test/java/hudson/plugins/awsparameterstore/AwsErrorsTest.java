@@ -0,0 +1,74 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+import java.net.SocketException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link AwsErrors}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class AwsErrorsTest {
+
+  /**
+   * Test that throttling, server errors and connection failures are retryable.
+   */
+  @Test
+  public void testRetryable() {
+    Assert.assertTrue("throttling", AwsErrors.isRetryable(serviceException("ThrottlingException", 400)));
+    Assert.assertTrue("throttling", AwsErrors.isThrottling(serviceException("ThrottlingException", 400)));
+    Assert.assertTrue("server error", AwsErrors.isRetryable(serviceException("InternalServerError", 500)));
+    Assert.assertTrue("unavailable", AwsErrors.isRetryable(serviceException(null, 503)));
+    Assert.assertTrue("connection reset", AwsErrors.isRetryable(
+      new AmazonClientException("Unable to execute HTTP request", new SocketException("Connection reset"))));
+  }
+
+  /**
+   * Test that client errors and interrupts are not retryable.
+   */
+  @Test
+  public void testNotRetryable() {
+    Assert.assertFalse("access denied", AwsErrors.isRetryable(serviceException("AccessDeniedException", 400)));
+    Assert.assertFalse("not found", AwsErrors.isRetryable(serviceException("ParameterNotFound", 400)));
+    Assert.assertFalse("access denied", AwsErrors.isThrottling(serviceException("AccessDeniedException", 400)));
+    Assert.assertFalse("aborted", AwsErrors.isRetryable(new AbortedException(new SocketException("Interrupted"))));
+    Assert.assertFalse("runtime", AwsErrors.isRetryable(new IllegalStateException()));
+  }
+
+  private AmazonServiceException serviceException(String errorCode, int statusCode) {
+    AmazonServiceException e = new AmazonServiceException("error");
+    e.setErrorCode(errorCode);
+    e.setStatusCode(statusCode);
+    return e;
+  }
+}
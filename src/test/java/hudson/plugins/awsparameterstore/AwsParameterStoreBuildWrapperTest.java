@@ -25,6 +25,7 @@ package hudson.plugins.awsparameterstore;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
 import jenkins.tasks.SimpleBuildWrapper;
 
@@ -147,6 +148,83 @@ public class AwsParameterStoreBuildWrapperTest {
     Assert.assertEquals("namePrefixes", StringUtils.stripToNull(namePrefixes), awsParameterStoreBuildWrapper.getNamePrefixes());
   }
 
+  /**
+   * Test that additional paths can be set and cleared.
+   */
+  @Test
+  public void testSetPaths() {
+    AwsParameterStoreBuildWrapper awsParameterStoreBuildWrapper = new AwsParameterStoreBuildWrapper();
+    Assert.assertTrue("default paths", awsParameterStoreBuildWrapper.getPaths().isEmpty());
+
+    AwsParameterStorePath awsParameterStorePath = new AwsParameterStorePath("/shared");
+    awsParameterStoreBuildWrapper.setPaths(Arrays.asList(awsParameterStorePath));
+    Assert.assertEquals("paths", Arrays.asList(awsParameterStorePath), awsParameterStoreBuildWrapper.getPaths());
+
+    awsParameterStoreBuildWrapper.setPaths(Collections.<AwsParameterStorePath>emptyList());
+    Assert.assertTrue("cleared paths", awsParameterStoreBuildWrapper.getPaths().isEmpty());
+  }
+
+  /**
+   * Test that parameter names can be set and cleared.
+   */
+  @Test
+  public void testSetNames() {
+    AwsParameterStoreBuildWrapper awsParameterStoreBuildWrapper = new AwsParameterStoreBuildWrapper();
+    Assert.assertTrue("default names", awsParameterStoreBuildWrapper.getNames().isEmpty());
+
+    AwsParameterStoreName awsParameterStoreName = new AwsParameterStoreName("/service/name1");
+    awsParameterStoreBuildWrapper.setNames(Arrays.asList(awsParameterStoreName));
+    Assert.assertEquals("names", Arrays.asList(awsParameterStoreName), awsParameterStoreBuildWrapper.getNames());
+
+    awsParameterStoreBuildWrapper.setNames(Collections.<AwsParameterStoreName>emptyList());
+    Assert.assertTrue("cleared names", awsParameterStoreBuildWrapper.getNames().isEmpty());
+  }
+
+  /**
+   * Test that the prefetch flag can be set.
+   */
+  @Test
+  public void testSetPrefetch() {
+    AwsParameterStoreBuildWrapper awsParameterStoreBuildWrapper = new AwsParameterStoreBuildWrapper();
+    Assert.assertFalse("default prefetch", awsParameterStoreBuildWrapper.isPrefetch());
+
+    awsParameterStoreBuildWrapper.setPrefetch(true);
+    Assert.assertEquals("prefetch", Boolean.TRUE, awsParameterStoreBuildWrapper.getPrefetch());
+    Assert.assertTrue("prefetch enabled", awsParameterStoreBuildWrapper.isPrefetch());
+  }
+
+  /**
+   * Test that the async flag and timeout can be set.
+   */
+  @Test
+  public void testSetAsync() {
+    AwsParameterStoreBuildWrapper awsParameterStoreBuildWrapper = new AwsParameterStoreBuildWrapper();
+    Assert.assertFalse("default async", awsParameterStoreBuildWrapper.isAsync());
+    Assert.assertNull("default asyncTimeout", awsParameterStoreBuildWrapper.getAsyncTimeout());
+
+    awsParameterStoreBuildWrapper.setAsync(true);
+    awsParameterStoreBuildWrapper.setAsyncTimeout(30);
+    Assert.assertTrue("async enabled", awsParameterStoreBuildWrapper.isAsync());
+    Assert.assertEquals("asyncTimeout", Integer.valueOf(30), awsParameterStoreBuildWrapper.getAsyncTimeout());
+
+    awsParameterStoreBuildWrapper.setAsyncTimeout(0);
+    Assert.assertNull("cleared asyncTimeout", awsParameterStoreBuildWrapper.getAsyncTimeout());
+  }
+
+  /**
+   * Test build wrapper setup with additional paths.
+   */
+  @Test
+  public void testSetupWithPaths() {
+    AwsParameterStoreBuildWrapper awsParameterStoreBuildWrapper = new AwsParameterStoreBuildWrapper(credentialsId, REGION_NAME, path, recursive, naming, namePrefixes);
+    awsParameterStoreBuildWrapper.setPaths(Arrays.asList(new AwsParameterStorePath("/shared")));
+    try {
+      awsParameterStoreBuildWrapper.setUp((SimpleBuildWrapper.Context)null, null, null, null, null, null);
+    } catch(Exception e) {
+      Assert.fail("Unexpected exception: " + e.getMessage());
+    }
+  }
+
   /**
    * Test build wrapper setup.
    */
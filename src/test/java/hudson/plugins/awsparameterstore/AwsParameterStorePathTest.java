@@ -0,0 +1,66 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link AwsParameterStorePath}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class AwsParameterStorePathTest {
+
+  /**
+   * Test that a recursive hierarchy covers its sub-hierarchies.
+   */
+  @Test
+  public void testCovers() {
+    Assert.assertTrue("sub-hierarchy", path("/service", true).covers(path("/service/app", false)));
+    Assert.assertTrue("trailing '/'", path("/service/", true).covers(path("/service", true)));
+    Assert.assertTrue("same path", path("/service", false).covers(path("/service", false)));
+    Assert.assertFalse("not recursive", path("/service", false).covers(path("/service/app", false)));
+    Assert.assertFalse("recursive sub-hierarchy", path("/service", false).covers(path("/service", true)));
+    Assert.assertFalse("sibling", path("/service", true).covers(path("/service-other", true)));
+  }
+
+  /**
+   * Test that parameter names are matched by hierarchy.
+   */
+  @Test
+  public void testContains() {
+    Assert.assertTrue("child", path("/service", false).contains("/service/name"));
+    Assert.assertFalse("grandchild", path("/service", false).contains("/service/app/name"));
+    Assert.assertTrue("recursive grandchild", path("/service/", true).contains("/service/app/name"));
+    Assert.assertFalse("sibling", path("/service", true).contains("/service-other/name"));
+  }
+
+  private AwsParameterStorePath path(String path, boolean recursive) {
+    AwsParameterStorePath awsParameterStorePath = new AwsParameterStorePath(path);
+    awsParameterStorePath.setRecursive(recursive);
+    return awsParameterStorePath;
+  }
+}
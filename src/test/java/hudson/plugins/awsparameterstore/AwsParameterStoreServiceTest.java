@@ -31,6 +31,8 @@ import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRe
 import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
 import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
@@ -61,6 +63,8 @@ import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 import org.mockito.Mockito;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.easymock.PowerMock;
 import org.powermock.api.easymock.annotation.Mock;
 import org.powermock.api.mockito.PowerMockito;
@@ -217,6 +221,23 @@ public class AwsParameterStoreServiceTest {
           new String[][] { { "PREFIX1_NAME1", "value1" }, { "PREFIX2_NAME2", "value2" } },
           CREDENTIALS_AWS_ADMIN
         },
+        { /* more names than a single getParameters batch */
+          new String[][] {
+            { "name1", "value1" }, { "name2", "value2" }, { "name3", "value3" }, { "name4", "value4" },
+            { "name5", "value5" }, { "name6", "value6" }, { "name7", "value7" }, { "name8", "value8" },
+            { "name9", "value9" }, { "name10", "value10" }, { "name11", "value11" }, { "name12", "value12" }
+          },
+          null,
+          false,
+          "basename",
+          "",
+          new String[][] {
+            { "NAME1", "value1" }, { "NAME2", "value2" }, { "NAME3", "value3" }, { "NAME4", "value4" },
+            { "NAME5", "value5" }, { "NAME6", "value6" }, { "NAME7", "value7" }, { "NAME8", "value8" },
+            { "NAME9", "value9" }, { "NAME10", "value10" }, { "NAME11", "value11" }, { "NAME12", "value12" }
+          },
+          CREDENTIALS_AWS_ADMIN
+        },
         { /* empty values */
           new String[][] { { "name1", "" }, { "name2", null }, { "name3","value3" } },
           null,
@@ -262,6 +283,7 @@ public class AwsParameterStoreServiceTest {
    */
   @Before
   public void setUp() {
+    ClientRegistry.clear();
     mockAWSCredentialsHelper();
     mockAWSSimpleSystemsManagementClient();
     mockJenkins();
@@ -329,6 +351,14 @@ public class AwsParameterStoreServiceTest {
       );
     }
 
+    PowerMockito.when(awsSimpleSystemsManagementClient.getParameters(Mockito.any(GetParametersRequest.class))).thenAnswer(
+      new Answer<GetParametersResult>() {
+        public GetParametersResult answer(InvocationOnMock invocation) {
+          return mockGetParametersResult((GetParametersRequest)invocation.getArguments()[0]);
+        }
+      }
+    );
+
     for(int i = 0; i < parameters.length; i++) {
       if(CREDENTIALS_AWS_NO_GET.equals(credentialsId) && i == 0) {
         PowerMockito.when(awsSimpleSystemsManagementClient.getParameter(Mockito.argThat(new GetParameterRequestMatcher(parameters[i][NAME])))).thenThrow(
@@ -342,6 +372,41 @@ public class AwsParameterStoreServiceTest {
     }
   }
 
+  /**
+   * Generates a <code>GetParametersResult</code> for the names in <code>getParametersRequest</code>. A request
+   * that includes the first parameter fails as a whole when the credentials cannot get it.
+   */
+  private GetParametersResult mockGetParametersResult(GetParametersRequest getParametersRequest) {
+    GetParametersResult getParametersResult = new GetParametersResult().
+      withParameters(new ArrayList<com.amazonaws.services.simplesystemsmanagement.model.Parameter>()).
+      withInvalidParameters(new ArrayList<String>());
+    for(String name : getParametersRequest.getNames()) {
+      if(CREDENTIALS_AWS_NO_GET.equals(credentialsId) && name.equals(parameters[0][NAME])) {
+        throw new AWSSimpleSystemsManagementException("AccessDenied");
+      }
+      String[] parameter = findParameter(name);
+      if(parameter == null) {
+        getParametersResult.getInvalidParameters().add(name);
+      } else {
+        getParametersResult.getParameters().add(
+          new com.amazonaws.services.simplesystemsmanagement.model.Parameter().withName(parameter[NAME]).withValue(parameter[VALUE]));
+      }
+    }
+    return getParametersResult;
+  }
+
+  /**
+   * Finds the test parameter called <code>name</code>.
+   */
+  private String[] findParameter(String name) {
+    for(int i = 0; i < parameters.length; i++) {
+      if(parameters[i][NAME].equals(name)) {
+        return parameters[i];
+      }
+    }
+    return null;
+  }
+
   /**
     * Generates <code>ParameterMetadata</code> return values.
     */
@@ -0,0 +1,167 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link CircuitBreaker}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class CircuitBreakerTest {
+
+  /**
+   * Test that the circuit opens after consecutive failures and fails fast.
+   */
+  @Test
+  public void testOpensAfterFailures() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("eu-west-1", 3, 60000);
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.checkAllowed();
+    circuitBreaker.onFailure();
+    Assert.assertTrue("open", circuitBreaker.isOpen());
+    try {
+      circuitBreaker.checkAllowed();
+      Assert.fail("Expected exception");
+    } catch(AmazonClientException e) {
+      Assert.assertTrue("message", e.getMessage().contains("eu-west-1"));
+    }
+  }
+
+  /**
+   * Test that a success resets the failure count.
+   */
+  @Test
+  public void testSuccessResetsFailures() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("eu-west-1", 2, 60000);
+    circuitBreaker.onFailure();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure();
+    Assert.assertFalse("closed", circuitBreaker.isOpen());
+  }
+
+  /**
+   * Test that a trial call is allowed once the circuit has been open long enough,
+   * and that a failed trial re-opens it.
+   */
+  @Test
+  public void testHalfOpen() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("eu-west-1", 1, 0);
+    circuitBreaker.onFailure();
+    circuitBreaker.checkAllowed();
+    circuitBreaker.onFailure();
+    Assert.assertTrue("re-opened", circuitBreaker.isOpen());
+    circuitBreaker.checkAllowed();
+    circuitBreaker.onSuccess();
+    Assert.assertFalse("closed", circuitBreaker.isOpen());
+  }
+
+  /**
+   * Test that a throttled trial call re-opens the circuit rather than leaving it half-open.
+   */
+  @Test
+  public void testThrottledTrial() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("eu-west-1", 1, 0);
+    circuitBreaker.onFailure();
+    AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+    throttled.setStatusCode(400);
+    throttled.setErrorCode("ThrottlingException");
+    ParameterStoreClient client = new ParameterStoreClient(new FailingClient(throttled), new RateLimiter(1000, 1, 1000), circuitBreaker, new RetryBudget(0));
+    try {
+      client.describeParameters(new DescribeParametersRequest());
+      Assert.fail("Expected exception");
+    } catch(AmazonServiceException e) {
+      Assert.assertEquals("error", "ThrottlingException", e.getErrorCode());
+    }
+    Assert.assertTrue("re-opened", circuitBreaker.isOpen());
+    Assert.assertTrue("next trial", circuitBreaker.checkAllowed());
+  }
+
+  /**
+   * Test that a trial call interrupted before it is made lets the next call through as a new trial.
+   */
+  @Test
+  public void testInterruptedTrial() throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("eu-west-1", 1, 0);
+    circuitBreaker.onFailure();
+    RateLimiter rateLimiter = new RateLimiter(1, 1, 1);
+    rateLimiter.acquire();
+    ParameterStoreClient client = new ParameterStoreClient(new FailingClient(null), rateLimiter, circuitBreaker, new RetryBudget(0));
+    Thread.currentThread().interrupt();
+    try {
+      client.describeParameters(new DescribeParametersRequest());
+      Assert.fail("Expected exception");
+    } catch(AbortedException e) {
+      Assert.assertTrue("interrupted", Thread.interrupted());
+    }
+    Assert.assertTrue("next trial", circuitBreaker.checkAllowed());
+  }
+
+  /**
+   * A {@link ParameterSource.Client} whose calls all fail.
+   */
+  private static class FailingClient implements ParameterSource.Client {
+    private final RuntimeException error;
+
+    FailingClient(RuntimeException error) {
+      this.error = error;
+    }
+
+    @Override
+    public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+      throw error;
+    }
+
+    @Override
+    public GetParameterResult getParameter(GetParameterRequest request) {
+      throw error;
+    }
+
+    @Override
+    public GetParametersResult getParameters(GetParametersRequest request) {
+      throw error;
+    }
+
+    @Override
+    public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+      throw error;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link ClientRegistry}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class ClientRegistryTest {
+
+  private final static String REGION_NAME = "eu-west-1";
+
+  /**
+   * Shuts down clients created by a test.
+   */
+  @After
+  public void tearDown() {
+    ClientRegistry.setEndpointUrl(null);
+    ClientRegistry.clear();
+  }
+
+  /**
+   * Test that the same credentials and region share a client.
+   */
+  @Test
+  public void testGetClientReusesClient() {
+    AWSSimpleSystemsManagement client = ClientRegistry.getClient("default", null, REGION_NAME, null);
+    Assert.assertSame("client", client, ClientRegistry.getClient("default", null, REGION_NAME, null));
+  }
+
+  /**
+   * Test that a different region or credentials provider gets a new client.
+   */
+  @Test
+  public void testGetClientByKey() {
+    AWSSimpleSystemsManagement client = ClientRegistry.getClient("default", null, REGION_NAME, null);
+    Assert.assertNotSame("region", client, ClientRegistry.getClient("default", null, "us-east-1", null));
+
+    AWSStaticCredentialsProvider credentialsProvider = new AWSStaticCredentialsProvider(new BasicAWSCredentials("id", "secret"));
+    AWSSimpleSystemsManagement credentialsClient = ClientRegistry.getClient("credentials:aws", credentialsProvider, REGION_NAME, null);
+    Assert.assertNotSame("credentials", client, credentialsClient);
+    Assert.assertSame("credentials", credentialsClient, ClientRegistry.getClient("credentials:aws", credentialsProvider, REGION_NAME, null));
+
+    AWSStaticCredentialsProvider sameCredentialsProvider = new AWSStaticCredentialsProvider(new BasicAWSCredentials("id", "secret"));
+    Assert.assertSame("same credentials", credentialsClient, ClientRegistry.getClient("credentials:aws", sameCredentialsProvider, REGION_NAME, null));
+
+    AWSStaticCredentialsProvider updatedCredentialsProvider = new AWSStaticCredentialsProvider(new BasicAWSCredentials("id", "updated"));
+    Assert.assertNotSame("updated credentials", credentialsClient, ClientRegistry.getClient("credentials:aws", updatedCredentialsProvider, REGION_NAME, null));
+    Assert.assertEquals("replaced", 1, ClientRegistry.getReplaced());
+    ClientRegistry.evict(-1);
+    Assert.assertEquals("replaced shut down", 0, ClientRegistry.getReplaced());
+  }
+
+  /**
+   * Test that a different endpoint gets a new client.
+   */
+  @Test
+  public void testGetClientByEndpoint() {
+    AWSSimpleSystemsManagement client = ClientRegistry.getClient("default", null, REGION_NAME, null);
+    ClientRegistry.setEndpointUrl("https://ssm.example.com");
+    AWSSimpleSystemsManagement endpointClient = ClientRegistry.getClient("default", null, REGION_NAME, null);
+    Assert.assertNotSame("endpoint", client, endpointClient);
+    Assert.assertSame("endpoint", endpointClient, ClientRegistry.getClient("default", null, REGION_NAME, null));
+    ClientRegistry.setEndpointUrl(" ");
+    Assert.assertSame("regional endpoint", client, ClientRegistry.getClient("default", null, REGION_NAME, null));
+  }
+
+  /**
+   * Test that the endpoint used to key circuit breakers includes an overridden endpoint.
+   */
+  @Test
+  public void testGetEndpoint() {
+    Assert.assertEquals("regional endpoint", REGION_NAME, ClientRegistry.getEndpoint(REGION_NAME));
+    ClientRegistry.setEndpointUrl("https://ssm.example.com");
+    Assert.assertEquals("endpoint", REGION_NAME + "/https://ssm.example.com", ClientRegistry.getEndpoint(REGION_NAME));
+  }
+
+  /**
+   * Test that idle clients are evicted.
+   */
+  @Test
+  public void testEvict() {
+    AWSSimpleSystemsManagement client = ClientRegistry.getClient("default", null, REGION_NAME, null);
+    ClientRegistry.evict(60000);
+    Assert.assertSame("recently used", client, ClientRegistry.getClient("default", null, REGION_NAME, null));
+    ClientRegistry.evict(-1);
+    Assert.assertNotSame("idle", client, ClientRegistry.getClient("default", null, REGION_NAME, null));
+  }
+}
@@ -0,0 +1,90 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link EnvironmentVariableNames}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class EnvironmentVariableNamesTest {
+
+  private final static String PATH = "/service/app";
+  private final static String NAME = "/service/app/db-01/user.name";
+
+  /**
+   * Forgets names remembered by a test.
+   */
+  @After
+  public void tearDown() {
+    EnvironmentVariableNames.MAX_ENTRIES = 65536;
+    EnvironmentVariableNames.clear();
+  }
+
+  /**
+   * Test each naming mode.
+   */
+  @Test
+  public void testNaming() {
+    Assert.assertEquals("basename", "USER_NAME", EnvironmentVariableNames.get(NAME, PATH, "basename"));
+    Assert.assertEquals("relative", "DB_01_USER_NAME", EnvironmentVariableNames.get(NAME, PATH, "relative"));
+    Assert.assertEquals("absolute", "SERVICE_APP_DB_01_USER_NAME", EnvironmentVariableNames.get(NAME, PATH, "absolute"));
+    Assert.assertEquals("default", "USER_NAME", EnvironmentVariableNames.get(NAME, PATH, null));
+    Assert.assertEquals("no path", "SERVICE_APP_DB_01_USER_NAME", EnvironmentVariableNames.get(NAME, null, null));
+    Assert.assertEquals("no path, no slash", "NAME_1", EnvironmentVariableNames.get("name-1", null, null));
+    Assert.assertEquals("relative to itself", "SERVICE_APP", EnvironmentVariableNames.get(PATH, PATH, "relative"));
+  }
+
+  /**
+   * Test that non-ASCII letters and digits are kept and other characters become underscores.
+   */
+  @Test
+  public void testNonAscii() {
+    Assert.assertEquals("letters", "CAF\u00C9_\u0661\u0662", EnvironmentVariableNames.get("caf\u00E9-\u0661\u0662", null, null));
+    Assert.assertEquals("symbols", "A__B", EnvironmentVariableNames.get("a\u00A7\u2013b", null, null));
+    Assert.assertEquals("surrogates", "X__", EnvironmentVariableNames.get("x\uD83D\uDE00", null, null));
+  }
+
+  /**
+   * Test that results are remembered and the memo is bounded.
+   */
+  @Test
+  public void testMemo() {
+    String environmentVariable = EnvironmentVariableNames.get(NAME, PATH, "relative");
+    Assert.assertSame("remembered", environmentVariable, EnvironmentVariableNames.get(new String(NAME), PATH, "relative"));
+    Assert.assertNotSame("not remembered", environmentVariable, EnvironmentVariableNames.convert(NAME, PATH, "relative"));
+    Assert.assertEquals("size", 1, EnvironmentVariableNames.size());
+
+    EnvironmentVariableNames.MAX_ENTRIES = 10;
+    for(int i = 0; i < 25; i++) {
+      Assert.assertEquals("name", "NAME" + i, EnvironmentVariableNames.get("/name" + i, null, null));
+    }
+    Assert.assertTrue("bounded", EnvironmentVariableNames.size() <= 10);
+  }
+}
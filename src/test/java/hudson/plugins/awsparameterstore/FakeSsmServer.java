@@ -0,0 +1,488 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for AWS Parameter Store that speaks the SSM JSON protocol for
+ * <code>GetParametersByPath</code>, <code>DescribeParameters</code>, <code>GetParameter</code>
+ * and <code>GetParameters</code>, so that the plugin can be exercised through a real SDK client
+ * without AWS. Point a client at {@link #getEndpointUrl()}, e.g. with
+ * {@link ClientRegistry#setEndpointUrl(String)}. Latency, throttling and errors can be injected.
+ * <p>
+ * It is only part of the plugin's tests, so the benchmarks module, which depends on the plugin jar,
+ * cannot use it and measures against an in-memory {@link ParameterSource} instead.
+ *
+ * @author Rik Turnbull
+ *
+ */
+final class FakeSsmServer implements Closeable {
+
+  private static final String TARGET_PREFIX = "AmazonSSM.";
+  private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+  private static final int GET_PARAMETERS_BY_PATH_MAX_RESULTS = 10;
+  private static final int DESCRIBE_PARAMETERS_MAX_RESULTS = 50;
+  private static final int GET_PARAMETERS_MAX_NAMES = 10;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ConcurrentNavigableMap<String,StoredParameter> parameters = new ConcurrentSkipListMap<String,StoredParameter>();
+  private final Set<String> denied = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+  private final ConcurrentMap<String,AtomicInteger> requests = new ConcurrentHashMap<String,AtomicInteger>();
+  private final AtomicInteger throttles = new AtomicInteger();
+  private final AtomicInteger failures = new AtomicInteger();
+  private final Random random = new Random();
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  private volatile long latencyMillis;
+  private volatile double throttleRate;
+  private volatile int failureStatus;
+  private volatile String failureType;
+
+  private FakeSsmServer(HttpServer server) {
+    this.server = server;
+    this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        final Thread thread = new Thread(runnable, "FakeSsmServer");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    server.setExecutor(executor);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          FakeSsmServer.this.handle(exchange);
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Starts a server on an ephemeral loopback port.
+   *
+   * @return the running server
+   * @throws IOException if the server cannot be bound
+   */
+  static FakeSsmServer start() throws IOException {
+    final FakeSsmServer fake = new FakeSsmServer(HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0));
+    fake.server.start();
+    return fake;
+  }
+
+  /**
+   * Gets the URL to use as the client endpoint.
+   *
+   * @return endpoint URL
+   */
+  String getEndpointUrl() {
+    return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+  }
+
+  /**
+   * Stores a <code>String</code> parameter, incrementing its version if it exists.
+   *
+   * @param name   parameter name
+   * @param value  parameter value
+   */
+  void putParameter(String name, String value) {
+    putParameter(name, "String", value);
+  }
+
+  /**
+   * Stores a parameter, incrementing its version if it exists.
+   *
+   * @param name   parameter name
+   * @param type   parameter type: String, StringList or SecureString
+   * @param value  parameter value
+   */
+  void putParameter(String name, String type, String value) {
+    final StoredParameter previous = parameters.get(name);
+    parameters.put(name, new StoredParameter(name, type, value, previous == null ? 1 : previous.version + 1));
+  }
+
+  /**
+   * Removes a parameter.
+   *
+   * @param name  parameter name
+   */
+  void deleteParameter(String name) {
+    parameters.remove(name);
+  }
+
+  /**
+   * Makes reads of <code>name</code> fail with <code>AccessDeniedException</code>.
+   *
+   * @param name  parameter name
+   */
+  void denyParameter(String name) {
+    denied.add(name);
+  }
+
+  /**
+   * Sets a delay added to every request.
+   *
+   * @param latencyMillis  delay in milliseconds
+   */
+  void setLatency(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Sets the fraction of requests that are throttled at random.
+   *
+   * @param throttleRate  fraction between <code>0</code> and <code>1</code>
+   */
+  void setThrottleRate(double throttleRate) {
+    this.throttleRate = throttleRate;
+  }
+
+  /**
+   * Throttles the next <code>count</code> requests.
+   *
+   * @param count  number of requests
+   */
+  void throttle(int count) {
+    throttles.set(count);
+  }
+
+  /**
+   * Fails the next <code>count</code> requests with an error.
+   *
+   * @param count      number of requests
+   * @param status     HTTP status code, e.g. 500
+   * @param errorType  AWS error code, e.g. <code>InternalServerError</code>
+   */
+  void fail(int count, int status, String errorType) {
+    failureStatus = status;
+    failureType = errorType;
+    failures.set(count);
+  }
+
+  /**
+   * Gets the number of requests received for <code>operation</code>, including failed ones.
+   *
+   * @param operation  operation name, e.g. <code>GetParametersByPath</code>
+   * @return number of requests
+   */
+  int getRequestCount(String operation) {
+    final AtomicInteger count = requests.get(operation);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Stops the server.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    final String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+    final String operation = target != null && target.startsWith(TARGET_PREFIX) ? target.substring(TARGET_PREFIX.length()) : String.valueOf(target);
+    AtomicInteger count = requests.get(operation);
+    if(count == null) {
+      requests.putIfAbsent(operation, new AtomicInteger());
+      count = requests.get(operation);
+    }
+    count.incrementAndGet();
+
+    JsonNode request;
+    try(InputStream in = exchange.getRequestBody()) {
+      request = mapper.readTree(in);
+    }
+    if(request == null) {
+      request = mapper.createObjectNode();
+    }
+
+    if(latencyMillis > 0) {
+      try {
+        Thread.sleep(latencyMillis);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+    if(decrement(throttles) || (throttleRate > 0 && random.nextDouble() < throttleRate)) {
+      sendError(exchange, 400, "ThrottlingException", "Rate exceeded");
+      return;
+    }
+    if(decrement(failures)) {
+      sendError(exchange, failureStatus, failureType, "Injected failure");
+      return;
+    }
+
+    try {
+      if("GetParametersByPath".equals(operation)) {
+        send(exchange, getParametersByPath(request));
+      } else if("DescribeParameters".equals(operation)) {
+        send(exchange, describeParameters(request));
+      } else if("GetParameter".equals(operation)) {
+        send(exchange, getParameter(request));
+      } else if("GetParameters".equals(operation)) {
+        send(exchange, getParameters(request));
+      } else {
+        sendError(exchange, 400, "UnknownOperationException", "Unsupported operation: " + operation);
+      }
+    } catch(FakeException e) {
+      sendError(exchange, 400, e.type, e.getMessage());
+    }
+  }
+
+  private ObjectNode getParametersByPath(JsonNode request) throws FakeException {
+    final String path = request.path("Path").asText();
+    if(!path.startsWith("/")) {
+      throw new FakeException("ValidationException", "Path must begin with /");
+    }
+    final String prefix = path.endsWith("/") ? path : path + "/";
+    final boolean recursive = request.path("Recursive").asBoolean(false);
+    final boolean withDecryption = request.path("WithDecryption").asBoolean(false);
+    final int maxResults = request.path("MaxResults").asInt(GET_PARAMETERS_BY_PATH_MAX_RESULTS);
+
+    final ObjectNode response = mapper.createObjectNode();
+    final ArrayNode results = response.putArray("Parameters");
+    for(StoredParameter parameter : after(request).values()) {
+      if(!parameter.name.startsWith(prefix) || (!recursive && parameter.name.indexOf('/', prefix.length()) >= 0)) {
+        continue;
+      }
+      if(denied.contains(parameter.name)) {
+        continue;
+      }
+      if(results.size() == maxResults) {
+        response.put("NextToken", results.get(results.size() - 1).get("Name").asText());
+        break;
+      }
+      results.add(parameter.toJson(mapper, withDecryption, true));
+    }
+    return response;
+  }
+
+  private ObjectNode describeParameters(JsonNode request) {
+    final int maxResults = Math.min(request.path("MaxResults").asInt(DESCRIBE_PARAMETERS_MAX_RESULTS), DESCRIBE_PARAMETERS_MAX_RESULTS);
+    final ObjectNode response = mapper.createObjectNode();
+    final ArrayNode results = response.putArray("Parameters");
+    for(StoredParameter parameter : after(request).values()) {
+      if(!matches(parameter.name, request.path("ParameterFilters"))) {
+        continue;
+      }
+      if(results.size() == maxResults) {
+        response.put("NextToken", results.get(results.size() - 1).get("Name").asText());
+        break;
+      }
+      results.add(parameter.toJson(mapper, false, false));
+    }
+    return response;
+  }
+
+  private ObjectNode getParameter(JsonNode request) throws FakeException {
+    final String name = request.path("Name").asText();
+    final StoredParameter parameter = parameters.get(name);
+    if(denied.contains(name)) {
+      throw new FakeException("AccessDeniedException", "Not authorized to perform ssm:GetParameter on " + name);
+    }
+    if(parameter == null) {
+      throw new FakeException("ParameterNotFound", null);
+    }
+    final ObjectNode response = mapper.createObjectNode();
+    response.set("Parameter", parameter.toJson(mapper, request.path("WithDecryption").asBoolean(false), true));
+    return response;
+  }
+
+  private ObjectNode getParameters(JsonNode request) throws FakeException {
+    final JsonNode names = request.path("Names");
+    if(names.size() == 0 || names.size() > GET_PARAMETERS_MAX_NAMES) {
+      throw new FakeException("ValidationException", "Names must contain between 1 and " + GET_PARAMETERS_MAX_NAMES + " names");
+    }
+    final boolean withDecryption = request.path("WithDecryption").asBoolean(false);
+    final ObjectNode response = mapper.createObjectNode();
+    final ArrayNode results = response.putArray("Parameters");
+    final ArrayNode invalid = response.putArray("InvalidParameters");
+    final Set<String> seen = new HashSet<String>();
+    for(JsonNode node : names) {
+      final String name = node.asText();
+      if(denied.contains(name)) {
+        throw new FakeException("AccessDeniedException", "Not authorized to perform ssm:GetParameters on " + name);
+      }
+      if(!seen.add(name)) {
+        continue;
+      }
+      final StoredParameter parameter = parameters.get(name);
+      if(parameter == null) {
+        invalid.add(name);
+      } else {
+        results.add(parameter.toJson(mapper, withDecryption, true));
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Gets the parameters after the request's <code>NextToken</code>, which is the last name returned.
+   */
+  private Map<String,StoredParameter> after(JsonNode request) {
+    final JsonNode nextToken = request.get("NextToken");
+    return nextToken == null ? parameters : parameters.tailMap(nextToken.asText(), false);
+  }
+
+  /**
+   * Applies the <code>Name</code> and <code>Path</code> filters of <code>DescribeParameters</code>.
+   */
+  private static boolean matches(String name, JsonNode filters) {
+    for(JsonNode filter : filters) {
+      final String key = filter.path("Key").asText();
+      final String option = filter.path("Option").asText("Equals");
+      boolean matched = false;
+      for(JsonNode value : filter.path("Values")) {
+        final String text = value.asText();
+        if("Name".equals(key)) {
+          matched |= "BeginsWith".equals(option) ? name.startsWith(text) : name.equals(text);
+        } else if("Path".equals(key)) {
+          final String prefix = text.endsWith("/") ? text : text + "/";
+          matched |= name.startsWith(prefix) && ("Recursive".equals(option) || name.indexOf('/', prefix.length()) < 0);
+        } else {
+          matched = true;
+        }
+      }
+      if(!matched) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean decrement(AtomicInteger counter) {
+    while(true) {
+      final int value = counter.get();
+      if(value <= 0) {
+        return false;
+      }
+      if(counter.compareAndSet(value, value - 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void send(HttpExchange exchange, ObjectNode response) throws IOException {
+    send(exchange, 200, null, mapper.writeValueAsBytes(response));
+  }
+
+  private void sendError(HttpExchange exchange, int status, String type, String message) throws IOException {
+    final ObjectNode error = mapper.createObjectNode();
+    error.put("__type", type);
+    if(message != null) {
+      error.put("message", message);
+    }
+    send(exchange, status, type, mapper.writeValueAsBytes(error));
+  }
+
+  private static void send(HttpExchange exchange, int status, String errorType, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+    if(errorType != null) {
+      exchange.getResponseHeaders().set("x-amzn-ErrorType", errorType);
+    }
+    exchange.sendResponseHeaders(status, body.length);
+    try(OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /**
+   * A stored parameter.
+   */
+  private static final class StoredParameter {
+    private final String name;
+    private final String type;
+    private final String value;
+    private final long version;
+    private final long lastModified = System.currentTimeMillis();
+
+    StoredParameter(String name, String type, String value, long version) {
+      this.name = name;
+      this.type = type;
+      this.value = value;
+      this.version = version;
+    }
+
+    ObjectNode toJson(ObjectMapper mapper, boolean withDecryption, boolean withValue) {
+      final ObjectNode node = mapper.createObjectNode();
+      node.put("Name", name);
+      node.put("Type", type);
+      if(withValue) {
+        node.put("Value", "SecureString".equals(type) && !withDecryption ? "encrypted:" + value : value);
+      }
+      node.put("Version", version);
+      node.put("LastModifiedDate", lastModified / 1000.0);
+      return node;
+    }
+  }
+
+  /**
+   * An error returned to the client.
+   */
+  private static final class FakeException extends Exception {
+    private final String type;
+
+    FakeException(String type, String message) {
+      super(message);
+      this.type = type;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Run tests for the endpoint override against a {@link FakeSsmServer}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class FakeSsmServerTest {
+
+  private final static String CREDENTIALS_IDENTITY = "credentials:test";
+  private final static String REGION_NAME = "eu-west-1";
+
+  private FakeSsmServer server;
+  private ParameterSource.Client client;
+
+  /**
+   * Starts the server and points new clients at it.
+   * @throws Exception if the server cannot be started
+   */
+  @Before
+  public void setUp() throws Exception {
+    server = FakeSsmServer.start();
+    for(int i = 0; i < 25; i++) {
+      server.putParameter(String.format("/service/name%02d", i), "value" + i);
+    }
+    server.putParameter("/service/app/name", "SecureString", "secret");
+    ClientRegistry.setEndpointUrl(server.getEndpointUrl());
+    client = SsmParameterSource.adapt(ClientRegistry.getClient(CREDENTIALS_IDENTITY,
+      new AWSStaticCredentialsProvider(new BasicAWSCredentials("id", "secret")), REGION_NAME, null));
+  }
+
+  /**
+   * Stops the server and restores the regional endpoint.
+   */
+  @After
+  public void tearDown() {
+    ClientRegistry.setEndpointUrl(null);
+    ClientRegistry.clear();
+    server.close();
+  }
+
+  /**
+   * Test that a hierarchy is fetched page by page from the overridden endpoint.
+   * @throws Exception if the parameters cannot be fetched
+   */
+  @Test
+  public void testGetParametersByPath() throws Exception {
+    List<Parameter> parameters = new PathCrawler(client, new PathKey(CREDENTIALS_IDENTITY, REGION_NAME, "/service", false, true)).fetch();
+    Assert.assertEquals("count", 25, parameters.size());
+    Assert.assertEquals("name", "/service/name00", parameters.get(0).getName());
+    Assert.assertEquals("value", "value24", parameters.get(24).getValue());
+    Assert.assertEquals("pages", 3, server.getRequestCount("GetParametersByPath"));
+  }
+
+  /**
+   * Test that a recursive hierarchy includes nested parameters, decrypted.
+   * @throws Exception if the parameters cannot be fetched
+   */
+  @Test
+  public void testGetParametersByPathRecursive() throws Exception {
+    List<Parameter> parameters = new PathCrawler(client, new PathKey(CREDENTIALS_IDENTITY, REGION_NAME, "/service", true, true)).fetch();
+    Assert.assertEquals("count", 26, parameters.size());
+    boolean found = false;
+    for(Parameter parameter : parameters) {
+      if("/service/app/name".equals(parameter.getName())) {
+        Assert.assertEquals("value", "secret", parameter.getValue());
+        Assert.assertEquals("version", Long.valueOf(1), parameter.getVersion());
+        found = true;
+      }
+    }
+    Assert.assertTrue("nested", found);
+  }
+
+  /**
+   * Test that missing names are returned as invalid parameters.
+   */
+  @Test
+  public void testGetParameters() {
+    GetParametersResult result = client.getParameters(new GetParametersRequest().withNames("/service/name01", "/missing"));
+    Assert.assertEquals("count", 1, result.getParameters().size());
+    Assert.assertEquals("value", "value1", result.getParameters().get(0).getValue());
+    Assert.assertEquals("invalid", "/missing", result.getInvalidParameters().get(0));
+  }
+
+  /**
+   * Test that throttled calls are retried by {@link ParameterStoreClient}.
+   */
+  @Test
+  public void testThrottlingRetried() {
+    server.throttle(2);
+    ParameterStoreClient retryingClient = new ParameterStoreClient(client, new RateLimiter(1000, 1, 1000), new CircuitBreaker("test", 5, 1000), new RetryBudget(10000));
+    Assert.assertEquals("value", "value3", retryingClient.getParameter(new GetParameterRequest().withName("/service/name03")).getParameter().getValue());
+    Assert.assertEquals("requests", 3, server.getRequestCount("GetParameter"));
+  }
+
+  /**
+   * Test that injected errors are classified as the plugin expects.
+   */
+  @Test
+  public void testErrors() {
+    server.denyParameter("/service/name04");
+    Assert.assertTrue("not found", AwsErrors.isNotFound(getParameterError("/missing")));
+    Assert.assertTrue("access denied", AwsErrors.isAccessDenied(getParameterError("/service/name04")));
+
+    server.fail(1, 500, "InternalServerError");
+    Assert.assertTrue("retryable", AwsErrors.isRetryable(getParameterError("/service/name05")));
+
+    server.throttle(1);
+    Assert.assertTrue("throttling", AwsErrors.isThrottling(getParameterError("/service/name05")));
+  }
+
+  private AmazonServiceException getParameterError(String name) {
+    try {
+      client.getParameter(new GetParameterRequest().withName(name));
+    } catch(AmazonServiceException e) {
+      return e;
+    }
+    Assert.fail("Expected " + name + " to fail");
+    return null;
+  }
+}
@@ -0,0 +1,120 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link FetchExecutor}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class FetchExecutorTest {
+
+  /**
+   * Test that a fetch runs on a pool thread while one is free.
+   */
+  @Test
+  public void testSubmit() throws Exception {
+    Assert.assertNotSame("pool thread", Thread.currentThread(), FetchExecutor.submit(new CurrentThread()).get());
+  }
+
+  /**
+   * Test that once every fetch thread is busy, no more threads are started: a fetch that may
+   * wait is rejected and any other runs on the calling thread.
+   */
+  @Test
+  public void testSubmitWhenBusy() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      int busy = 0;
+      try {
+        for(; busy <= FetchExecutor.MAX_THREADS; busy++) {
+          FetchExecutor.trySubmit(new Blocked(release));
+        }
+        Assert.fail("not rejected");
+      } catch(RejectedExecutionException e) {
+        Assert.assertTrue("bounded: " + busy, busy <= FetchExecutor.MAX_THREADS);
+      }
+      Assert.assertSame("caller runs", Thread.currentThread(), FetchExecutor.submit(new CurrentThread()).get());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  /**
+   * Test that background work is rejected once its threads are busy and its queue is full.
+   */
+  @Test
+  public void testSubmitBackgroundWhenFull() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final int capacity = FetchExecutor.BACKGROUND_THREADS + FetchExecutor.BACKGROUND_QUEUE;
+    try {
+      int queued = 0;
+      try {
+        for(; queued <= capacity; queued++) {
+          FetchExecutor.submitBackground(new Blocked(release));
+        }
+        Assert.fail("not rejected");
+      } catch(RejectedExecutionException e) {
+        Assert.assertTrue("bounded: " + queued, queued <= capacity);
+      }
+    } finally {
+      release.countDown();
+    }
+  }
+
+  /**
+   * Returns the thread it runs on.
+   */
+  private static class CurrentThread implements Callable<Thread> {
+    @Override
+    public Thread call() {
+      return Thread.currentThread();
+    }
+  }
+
+  /**
+   * Waits until released.
+   */
+  private static class Blocked implements Callable<Void> {
+    private final CountDownLatch release;
+
+    Blocked(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public Void call() throws InterruptedException {
+      release.await();
+      return null;
+    }
+  }
+}
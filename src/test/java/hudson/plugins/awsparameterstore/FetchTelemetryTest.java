@@ -0,0 +1,93 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link FetchTelemetry}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class FetchTelemetryTest {
+
+  /**
+   * Test that calls, retries, throttles and cache hits are counted.
+   */
+  @Test
+  public void testCounts() {
+    FetchTelemetry telemetry = new FetchTelemetry();
+    Assert.assertTrue("empty", telemetry.isEmpty());
+    telemetry.addCall("GetParametersByPath");
+    telemetry.addCall("GetParametersByPath");
+    telemetry.addCall("DescribeParameters");
+    telemetry.addRetry();
+    telemetry.addThrottle();
+    telemetry.addCacheHit();
+    Assert.assertFalse("empty", telemetry.isEmpty());
+    Assert.assertEquals("GetParametersByPath", Integer.valueOf(2), telemetry.getCalls().get("GetParametersByPath"));
+    Assert.assertEquals("DescribeParameters", Integer.valueOf(1), telemetry.getCalls().get("DescribeParameters"));
+    Assert.assertEquals("retries", 1, telemetry.getRetries());
+    Assert.assertEquals("throttles", 1, telemetry.getThrottles());
+    Assert.assertEquals("cache hits", 1, telemetry.getCacheHits());
+  }
+
+  /**
+   * Test that parameter values are counted in UTF-8 bytes.
+   */
+  @Test
+  public void testBytes() {
+    FetchTelemetry telemetry = new FetchTelemetry();
+    telemetry.addParameter("abc");
+    telemetry.addParameter("caf\u00E9");
+    telemetry.addParameter("\u20AC\uD83D\uDE00");
+    telemetry.addParameter(null);
+    Assert.assertEquals("parameters", 4, telemetry.getParameters());
+    Assert.assertEquals("bytes", 3 + 5 + 7, telemetry.getBytes());
+  }
+
+  /**
+   * Test that phases are reported in order and that telemetry can be merged.
+   */
+  @Test
+  public void testAddAll() {
+    FetchTelemetry telemetry = new FetchTelemetry();
+    telemetry.addTime(FetchTelemetry.Phase.INJECT, System.nanoTime());
+    telemetry.addCall("GetParameters");
+
+    FetchTelemetry prefetch = new FetchTelemetry();
+    prefetch.addTime(FetchTelemetry.Phase.CREDENTIALS, System.nanoTime() - 5000000L);
+    prefetch.addCall("GetParameters");
+    prefetch.addParameter("value");
+
+    telemetry.addAll(prefetch);
+    telemetry.addAll(telemetry);
+    Assert.assertEquals("phases", "[Credentials, Environment]", telemetry.getPhaseMillis().keySet().toString());
+    Assert.assertTrue("credentials", telemetry.getPhaseMillis().get("Credentials").longValue() >= 5);
+    Assert.assertEquals("calls", Integer.valueOf(2), telemetry.getCalls().get("GetParameters"));
+    Assert.assertEquals("parameters", 1, telemetry.getParameters());
+  }
+}
@@ -0,0 +1,94 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterNotFoundException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link NegativeCache}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class NegativeCacheTest {
+
+  private final static String IDENTITY = "default";
+  private final static String REGION_NAME = "eu-west-1";
+
+  private final NegativeCache cache = NegativeCache.get();
+
+  /**
+   * Restores the default (disabled) negative cache.
+   */
+  @After
+  public void tearDown() {
+    cache.setTtl(AwsParameterStoreConfiguration.DEFAULT_NEGATIVE_CACHE_TTL);
+  }
+
+  /**
+   * Test that nothing is remembered when the time to live is zero.
+   */
+  @Test
+  public void testDisabled() {
+    cache.setTtl(0);
+    cache.put(IDENTITY, REGION_NAME, "/missing", NegativeCache.Reason.NOT_FOUND);
+    Assert.assertNull("reason", cache.get(IDENTITY, REGION_NAME, "/missing"));
+  }
+
+  /**
+   * Test that failures are remembered per credentials and region.
+   */
+  @Test
+  public void testPutAndGet() {
+    cache.setTtl(60);
+    cache.put(IDENTITY, REGION_NAME, "/denied", NegativeCache.Reason.ACCESS_DENIED);
+    Assert.assertEquals("reason", NegativeCache.Reason.ACCESS_DENIED, cache.get(IDENTITY, REGION_NAME, "/denied"));
+    Assert.assertNull("other credentials", cache.get("credentials:other", REGION_NAME, "/denied"));
+    Assert.assertNull("other region", cache.get(IDENTITY, "us-east-1", "/denied"));
+    Assert.assertEquals("count", 1, cache.getCount());
+  }
+
+  /**
+   * Test that only lasting failures are remembered.
+   */
+  @Test
+  public void testGetReason() {
+    Assert.assertEquals("not found", NegativeCache.Reason.NOT_FOUND, NegativeCache.getReason(new ParameterNotFoundException("missing")));
+    Assert.assertEquals("access denied", NegativeCache.Reason.ACCESS_DENIED, NegativeCache.getReason(serviceException("AccessDeniedException", 400)));
+    Assert.assertNull("throttling", NegativeCache.getReason(serviceException("ThrottlingException", 400)));
+    Assert.assertNull("server error", NegativeCache.getReason(serviceException("InternalServerError", 500)));
+  }
+
+  private AmazonServiceException serviceException(String errorCode, int statusCode) {
+    AmazonServiceException e = new AmazonServiceException(errorCode);
+    e.setErrorCode(errorCode);
+    e.setStatusCode(statusCode);
+    return e;
+  }
+}
@@ -0,0 +1,172 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link ParameterBatcher}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class ParameterBatcherTest {
+
+  private final static int WINDOW_MILLIS = ParameterBatcher.WINDOW_MILLIS;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  /**
+   * Restores the default window.
+   */
+  @After
+  public void tearDown() {
+    ParameterBatcher.WINDOW_MILLIS = WINDOW_MILLIS;
+    executor.shutdownNow();
+  }
+
+  /**
+   * Test that concurrent lookups are gathered into full batches.
+   */
+  @Test
+  public void testBatchesConcurrentLookups() throws Exception {
+    ParameterBatcher.WINDOW_MILLIS = 500;
+    FakeLoader loader = new FakeLoader(null);
+    List<Future<String>> values = lookup("key1", 25, loader);
+    for(int i = 0; i < values.size(); i++) {
+      Assert.assertEquals("value" + i, "value:name" + i, values.get(i).get());
+    }
+    Assert.assertEquals("batches", 3, loader.batches.size());
+    for(List<String> batch : loader.batches) {
+      Assert.assertTrue("batch size", batch.size() <= AwsParameterStoreService.GET_PARAMETERS_MAX_NAMES);
+    }
+    Assert.assertEquals("open", 0, ParameterBatcher.get().getOpen());
+  }
+
+  /**
+   * Test that lookups for different keys are not batched together.
+   */
+  @Test
+  public void testKeys() throws Exception {
+    ParameterBatcher.WINDOW_MILLIS = 200;
+    FakeLoader loader = new FakeLoader(null);
+    List<Future<String>> values = lookup("key1", 2, loader);
+    values.addAll(lookup("key2", 2, loader));
+    for(Future<String> value : values) {
+      Assert.assertNotNull("value", value.get());
+    }
+    Assert.assertEquals("batches", 2, loader.batches.size());
+  }
+
+  /**
+   * Test that a name the loader does not return is null, and the same name is loaded once.
+   */
+  @Test
+  public void testMissingAndDuplicate() throws Exception {
+    ParameterBatcher.WINDOW_MILLIS = 200;
+    FakeLoader loader = new FakeLoader(null);
+    Future<String> first = submit("key1", "missing", loader);
+    Future<String> second = submit("key1", "missing", loader);
+    Assert.assertNull("first", first.get());
+    Assert.assertNull("second", second.get());
+    Assert.assertEquals("names", Collections.singletonList("missing"), loader.batches.get(0));
+  }
+
+  /**
+   * Test that a failed batch fails every lookup in it.
+   */
+  @Test
+  public void testError() throws Exception {
+    ParameterBatcher.WINDOW_MILLIS = 200;
+    FakeLoader loader = new FakeLoader(new IllegalStateException("throttled"));
+    for(Future<String> value : lookup("key1", 3, loader)) {
+      try {
+        value.get();
+        Assert.fail("error expected");
+      } catch(ExecutionException e) {
+        Assert.assertEquals("error", "throttled", e.getCause().getMessage());
+      }
+    }
+  }
+
+  /**
+   * Looks up <code>count</code> names concurrently.
+   */
+  private List<Future<String>> lookup(String key, int count, FakeLoader loader) {
+    List<Future<String>> values = new ArrayList<Future<String>>();
+    for(int i = 0; i < count; i++) {
+      values.add(submit(key, "name" + i, loader));
+    }
+    return values;
+  }
+
+  private Future<String> submit(final String key, final String name, final FakeLoader loader) {
+    return executor.submit(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        return ParameterBatcher.get().get(key, name, loader);
+      }
+    });
+  }
+
+  /**
+   * A {@link ParameterBatcher.Loader} that records its batches.
+   */
+  private static class FakeLoader implements ParameterBatcher.Loader {
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+    private final Exception error;
+
+    FakeLoader(Exception error) {
+      this.error = error;
+    }
+
+    @Override
+    public Map<String,String> load(List<String> names) throws Exception {
+      batches.add(names);
+      if(error != null) {
+        throw error;
+      }
+      Map<String,String> values = new HashMap<String,String>();
+      for(String name : names) {
+        if(!name.equals("missing")) {
+          values.put(name, "value:" + name);
+        }
+      }
+      return values;
+    }
+  }
+}
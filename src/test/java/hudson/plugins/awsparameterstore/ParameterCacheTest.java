@@ -0,0 +1,155 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link ParameterCache}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class ParameterCacheTest {
+
+  private final static PathKey KEY1 = new PathKey("default", "eu-west-1", "/service1", true, true);
+  private final static PathKey KEY2 = new PathKey("default", "eu-west-1", "/service2", true, true);
+
+  private final ParameterCache cache = ParameterCache.get();
+
+  /**
+   * Restores the default (disabled) cache.
+   */
+  @After
+  public void tearDown() {
+    cache.setLimits(AwsParameterStoreConfiguration.DEFAULT_CACHE_TTL, AwsParameterStoreConfiguration.DEFAULT_CACHE_MAX_SIZE);
+    cache.setStaleLimits(AwsParameterStoreConfiguration.DEFAULT_CACHE_STALE_WHILE_REVALIDATE, AwsParameterStoreConfiguration.DEFAULT_CACHE_STALE_IF_ERROR);
+  }
+
+  /**
+   * Test that nothing is cached when the time to live is zero.
+   */
+  @Test
+  public void testDisabled() {
+    cache.setLimits(0, 1024);
+    cache.put(KEY1, snapshot(System.currentTimeMillis(), "/service1/name1"));
+    Assert.assertNull("snapshot", cache.get(KEY1));
+  }
+
+  /**
+   * Test that snapshots are returned until they expire.
+   */
+  @Test
+  public void testTtl() {
+    cache.setLimits(60, 1024);
+    ParameterSnapshot fresh = snapshot(System.currentTimeMillis(), "/service1/name1");
+    cache.put(KEY1, fresh);
+    Assert.assertSame("fresh", fresh, cache.get(KEY1));
+
+    cache.put(KEY2, snapshot(System.currentTimeMillis() - 61000, "/service2/name1"));
+    Assert.assertNull("expired", cache.get(KEY2));
+    Assert.assertEquals("count", 1, cache.getCount());
+  }
+
+  /**
+   * Test that expired snapshots are served within the stale windows.
+   */
+  @Test
+  public void testStaleWindows() {
+    cache.setLimits(60, 1024);
+    cache.setStaleLimits(30, 120);
+    ParameterSnapshot stale = snapshot(System.currentTimeMillis() - 70000, "/service1/name1");
+    cache.put(KEY1, stale);
+    Assert.assertNull("expired", cache.get(KEY1));
+    Assert.assertSame("stale while revalidate", stale, cache.getStaleWhileRevalidate(KEY1));
+    Assert.assertSame("stale if error", stale, cache.getStaleIfError(KEY1));
+
+    ParameterSnapshot older = snapshot(System.currentTimeMillis() - 100000, "/service2/name1");
+    cache.put(KEY2, older);
+    Assert.assertNull("too old to revalidate", cache.getStaleWhileRevalidate(KEY2));
+    Assert.assertSame("stale if error", older, cache.getStaleIfError(KEY2));
+  }
+
+  /**
+   * Test that snapshots older than every stale window are removed.
+   */
+  @Test
+  public void testStaleWindowsExpire() {
+    cache.setLimits(60, 1024);
+    cache.setStaleLimits(30, 30);
+    cache.put(KEY1, snapshot(System.currentTimeMillis() - 100000, "/service1/name1"));
+    Assert.assertNull("stale if error", cache.getStaleIfError(KEY1));
+    Assert.assertEquals("count", 0, cache.getCount());
+
+    cache.put(KEY2, snapshot(System.currentTimeMillis() - 70000, "/service2/name1"));
+    cache.setStaleLimits(0, 0);
+    Assert.assertEquals("count after narrowing", 0, cache.getCount());
+  }
+
+  /**
+   * Test that the least recently used snapshot is evicted when the cache is full.
+   */
+  @Test
+  public void testMaxSize() {
+    cache.setLimits(60, 1);
+    ParameterSnapshot snapshot1 = snapshot(System.currentTimeMillis(), "/service1/name1");
+    ParameterSnapshot snapshot2 = snapshot(System.currentTimeMillis(), "/service2/name1");
+    Assert.assertTrue("snapshot size", snapshot1.getSize() + snapshot2.getSize() > 1024);
+
+    cache.put(KEY1, snapshot1);
+    cache.put(KEY2, snapshot2);
+    Assert.assertNull("evicted", cache.get(KEY1));
+    Assert.assertSame("retained", snapshot2, cache.get(KEY2));
+    Assert.assertEquals("size", snapshot2.getSize(), cache.getSize());
+  }
+
+  /**
+   * Test that hits and misses are counted.
+   */
+  @Test
+  public void testHitsAndMisses() {
+    long hits = cache.getHits();
+    long misses = cache.getMisses();
+    cache.recordHit();
+    cache.recordHit();
+    cache.recordMiss();
+    Assert.assertEquals("hits", hits + 2, cache.getHits());
+    Assert.assertEquals("misses", misses + 1, cache.getMisses());
+  }
+
+  /**
+   * Creates a snapshot with one large parameter.
+   */
+  private ParameterSnapshot snapshot(long fetchedAt, String name) {
+    char[] value = new char[300];
+    Arrays.fill(value, 'x');
+    return new ParameterSnapshot(Arrays.asList(new Parameter().withName(name).withValue(new String(value))), fetchedAt);
+  }
+}
@@ -0,0 +1,369 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.tasks.SimpleBuildWrapper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link AwsParameterStoreService} against a fake {@link ParameterSource}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class ParameterSourceTest {
+
+  private final static String REGION_NAME = "eu-west-1";
+
+  /**
+   * Test that parameters fetched by path come from the injected source.
+   */
+  @Test
+  public void testBuildEnvVarsByPath() {
+    FakeParameterSource source = new FakeParameterSource();
+    source.parameters.put("/service/name1", "value1");
+    source.parameters.put("/service/app/name2", "value2");
+    source.parameters.put("/other/name3", "value3");
+
+    SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+    new AwsParameterStoreService(null, REGION_NAME, source).buildEnvVars(context, new HashMap<String,String>(), "/service", true, "relative", null);
+    Assert.assertEquals("NAME1", "value1", context.getEnv().get("NAME1"));
+    Assert.assertEquals("APP_NAME2", "value2", context.getEnv().get("APP_NAME2"));
+    Assert.assertEquals("count", 2, context.getEnv().size());
+    Assert.assertEquals("region", REGION_NAME, source.regionName);
+  }
+
+  /**
+   * Test that parameters fetched by name come from the injected source.
+   */
+  @Test
+  public void testBuildEnvVarsByName() {
+    FakeParameterSource source = new FakeParameterSource();
+    source.parameters.put("name1", "value1");
+    source.parameters.put("name2", "value2");
+
+    SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+    new AwsParameterStoreService(null, REGION_NAME, source).buildEnvVars(context, new HashMap<String,String>(), null, false, null, null);
+    Assert.assertEquals("NAME1", "value1", context.getEnv().get("NAME1"));
+    Assert.assertEquals("NAME2", "value2", context.getEnv().get("NAME2"));
+  }
+
+  /**
+   * Test that parameters fetched by name are not listed, are fetched in batches and use their own naming.
+   */
+  @Test
+  public void testBuildEnvVarsWithNames() {
+    FakeParameterSource source = new FakeParameterSource();
+    List<AwsParameterStoreName> names = new ArrayList<AwsParameterStoreName>();
+    for(int i = 1; i <= 12; i++) {
+      source.parameters.put("/service/name" + i, "value" + i);
+      AwsParameterStoreName name = new AwsParameterStoreName("/service/name" + i);
+      name.setNaming("basename");
+      names.add(name);
+    }
+    names.get(0).setNaming("absolute");
+    names.get(1).setVariable("OVERRIDE");
+    names.add(new AwsParameterStoreName("/service/missing"));
+    AwsParameterStoreName invalid = new AwsParameterStoreName("/service/name3");
+    invalid.setVariable("NOT-VALID");
+    names.add(invalid);
+
+    AwsParameterStoreAction action = new AwsParameterStoreAction();
+    AwsParameterStoreService service = new AwsParameterStoreService(null, REGION_NAME, source);
+    service.setAction(action);
+    SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+    service.buildEnvVarsWithNames(context, new HashMap<String,String>(), names);
+    Assert.assertEquals("SERVICE_NAME1", "value1", context.getEnv().get("SERVICE_NAME1"));
+    Assert.assertEquals("OVERRIDE", "value2", context.getEnv().get("OVERRIDE"));
+    Assert.assertEquals("NAME12", "value12", context.getEnv().get("NAME12"));
+    Assert.assertEquals("count", 12, context.getEnv().size());
+    Assert.assertEquals("batches", 2, source.getParametersCalls);
+    Assert.assertNull("not listed", action.getTelemetry().getCalls().get("DescribeParameters"));
+    Assert.assertFalse("invalid variable", context.getEnv().containsKey("NOT-VALID"));
+    Assert.assertEquals("unavailable", 2, action.getUnavailableParameters().size());
+  }
+
+  /**
+   * Test that each page of listed names is fetched while the next page is still being listed.
+   */
+  @Test
+  public void testBuildEnvVarsPipelined() {
+    PagedParameterSource source = new PagedParameterSource();
+    for(int i = 1; i <= 6; i++) {
+      source.parameters.put("name" + i, "value" + i);
+    }
+
+    SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+    new AwsParameterStoreService(null, REGION_NAME, source).buildEnvVars(context, new HashMap<String,String>(), null, false, null, null);
+    Assert.assertEquals("count", 6, context.getEnv().size());
+    Assert.assertTrue("overlapped", source.overlapped);
+  }
+
+  /**
+   * Test that a batch failing for every name alike is not fetched again one name at a time.
+   */
+  @Test
+  public void testBatchFailureNotFetchedIndividually() {
+    FakeParameterSource source = new FakeParameterSource() {
+      @Override
+      public synchronized GetParametersResult getParameters(GetParametersRequest request) {
+        throw new AmazonClientException("Unable to load AWS credentials");
+      }
+    };
+    source.parameters.put("name1", "value1");
+    source.parameters.put("name2", "value2");
+
+    AwsParameterStoreAction action = new AwsParameterStoreAction();
+    AwsParameterStoreService service = new AwsParameterStoreService(null, REGION_NAME, source);
+    service.setAction(action);
+    SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+    service.buildEnvVars(context, new HashMap<String,String>(), null, false, null, null);
+    Assert.assertEquals("count", 0, context.getEnv().size());
+    Assert.assertEquals("getParameter", 0, source.getParameterCalls);
+    Assert.assertEquals("unavailable", 2, action.getUnavailableParameters().size());
+  }
+
+  /**
+   * Test that calls, timings and parameters are recorded on the action.
+   */
+  @Test
+  public void testTelemetry() {
+    FakeParameterSource source = new FakeParameterSource();
+    source.parameters.put("/service/name1", "value1");
+    source.parameters.put("/service/name2", "value2");
+
+    AwsParameterStoreAction action = new AwsParameterStoreAction();
+    AwsParameterStoreService service = new AwsParameterStoreService(null, REGION_NAME, source);
+    service.setAction(action);
+    service.buildEnvVars(new SimpleBuildWrapper.Context(), new HashMap<String,String>(), "/service", false, "basename", null);
+
+    FetchTelemetry telemetry = action.getTelemetry();
+    Assert.assertEquals("parameters", 2, telemetry.getParameters());
+    Assert.assertEquals("bytes", 12, telemetry.getBytes());
+    Assert.assertEquals("calls", Integer.valueOf(1), telemetry.getCalls().get("GetParametersByPath"));
+    Assert.assertTrue("phases", telemetry.getPhaseMillis().keySet().containsAll(Arrays.asList("Credentials", "Client", "Fetching", "Environment")));
+  }
+
+  /**
+   * Test that the lazy parameter map lists names up front and fetches values in batches on first access.
+   */
+  @Test
+  public void testLazyParameterMap() throws Exception {
+    FakeParameterSource source = new FakeParameterSource();
+    for(int i = 1; i <= 25; i++) {
+      source.parameters.put("/service/name" + i, "value" + i);
+    }
+    source.parameters.put("/service/app/name1", "nested");
+    source.parameters.put("/other/name1", "other");
+
+    Map<String,String> env = new HashMap<String,String>();
+    AwsParameterStoreService service = new AwsParameterStoreService(null, REGION_NAME, source);
+    LazyParameterMap parameters = new LazyParameterMap(service, null, REGION_NAME, env, service.listParametersByPath(env, "/service", false, "basename"));
+    Assert.assertEquals("size", 25, parameters.size());
+    Assert.assertTrue("containsKey", parameters.containsKey("NAME25"));
+    Assert.assertEquals("listed only", 0, source.getParametersCalls);
+
+    Assert.assertEquals("NAME1", "value1", parameters.get("NAME1"));
+    Assert.assertEquals("NAME10", "value10", parameters.get("NAME10"));
+    Assert.assertEquals("one batch", 1, source.getParametersCalls);
+    Assert.assertNull("missing", parameters.get("MISSING"));
+    Assert.assertEquals("toString", false, parameters.toString().contains("value1"));
+
+    Assert.assertEquals("entries", 25, parameters.entrySet().size());
+    Assert.assertEquals("all batches", 3, source.getParametersCalls);
+  }
+
+  /**
+   * Test that a listed parameter that cannot be fetched is still a key, with a null value.
+   */
+  @Test
+  public void testLazyParameterMapMissing() throws Exception {
+    FakeParameterSource source = new FakeParameterSource();
+    source.parameters.put("/service/name1", "value1");
+    source.parameters.put("/service/name2", "value2");
+
+    Map<String,String> env = new HashMap<String,String>();
+    AwsParameterStoreService service = new AwsParameterStoreService(null, REGION_NAME, source);
+    LazyParameterMap parameters = new LazyParameterMap(service, null, REGION_NAME, env, service.listParametersByPath(env, "/service", false, "basename"));
+    source.parameters.remove("/service/name2");
+
+    parameters.fetchAll();
+    Assert.assertEquals("fetched", 1, source.getParametersCalls);
+    Assert.assertEquals("entries", parameters.size(), parameters.entrySet().size());
+    Assert.assertTrue("containsKey", parameters.containsKey("NAME2"));
+    Assert.assertNull("NAME2", parameters.get("NAME2"));
+    Assert.assertEquals("NAME1", "value1", parameters.get("NAME1"));
+  }
+
+  /**
+   * Test that a path with a trailing '/' lists the same parameters as without.
+   */
+  @Test
+  public void testListParametersByPathTrailingSlash() throws Exception {
+    FakeParameterSource source = new FakeParameterSource();
+    source.parameters.put("/service/name1", "value1");
+    source.parameters.put("/service/app/name2", "value2");
+
+    Map<String,String> env = new HashMap<String,String>();
+    AwsParameterStoreService service = new AwsParameterStoreService(null, REGION_NAME, source);
+    Map<String,String> names = service.listParametersByPath(env, "/service/", true, "relative");
+    Assert.assertEquals("NAME1", "/service/name1", names.get("NAME1"));
+    Assert.assertEquals("APP_NAME2", "/service/app/name2", names.get("APP_NAME2"));
+    Assert.assertEquals("size", 2, names.size());
+  }
+
+  /**
+   * A {@link ParameterSource} that serves parameters from a map, in a single page.
+   */
+  private static class FakeParameterSource extends ParameterSource implements ParameterSource.Client {
+    final Map<String,String> parameters = new TreeMap<String,String>();
+    private String regionName;
+    private volatile int getParameterCalls;
+    private volatile int getParametersCalls;
+
+    @Override
+    public Client getClient(AWSCredentialsProvider credentialsProvider, String credentialsIdentity, String regionName) {
+      this.regionName = regionName;
+      return this;
+    }
+
+    @Override
+    public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+      List<ParameterMetadata> metadata = new ArrayList<ParameterMetadata>();
+      for(String name : parameters.keySet()) {
+        if(matches(name, request.getParameterFilters())) {
+          metadata.add(new ParameterMetadata().withName(name));
+        }
+      }
+      return new DescribeParametersResult().withParameters(metadata);
+    }
+
+    @Override
+    public GetParameterResult getParameter(GetParameterRequest request) {
+      getParameterCalls++;
+      return new GetParameterResult().withParameter(toParameter(request.getName()));
+    }
+
+    @Override
+    public synchronized GetParametersResult getParameters(GetParametersRequest request) {
+      getParametersCalls++;
+      List<Parameter> result = new ArrayList<Parameter>();
+      List<String> invalid = new ArrayList<String>();
+      for(String name : request.getNames()) {
+        if(parameters.containsKey(name)) {
+          result.add(toParameter(name));
+        } else {
+          invalid.add(name);
+        }
+      }
+      return new GetParametersResult().withParameters(result).withInvalidParameters(invalid);
+    }
+
+    @Override
+    public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+      String prefix = request.getPath().endsWith("/") ? request.getPath() : request.getPath() + "/";
+      List<Parameter> result = new ArrayList<Parameter>();
+      for(String name : parameters.keySet()) {
+        if(name.startsWith(prefix) && (Boolean.TRUE.equals(request.getRecursive()) || name.indexOf('/', prefix.length()) < 0)) {
+          result.add(toParameter(name));
+        }
+      }
+      return new GetParametersByPathResult().withParameters(result);
+    }
+
+    private static boolean matches(String name, List<ParameterStringFilter> filters) {
+      if(filters != null) {
+        for(ParameterStringFilter filter : filters) {
+          if("Path".equals(filter.getKey())) {
+            String prefix = filter.getValues().get(0) + "/";
+            if(!name.startsWith(prefix) || ("OneLevel".equals(filter.getOption()) && name.indexOf('/', prefix.length()) >= 0)) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    private Parameter toParameter(String name) {
+      return new Parameter().withName(name).withValue(parameters.get(name));
+    }
+  }
+
+  /**
+   * A {@link FakeParameterSource} that lists names two to a page, and only lists a later page
+   * once a fetch has started.
+   */
+  private static class PagedParameterSource extends FakeParameterSource {
+    private final CountDownLatch fetching = new CountDownLatch(1);
+    private volatile boolean overlapped = true;
+
+    @Override
+    public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+      int start = request.getNextToken() == null ? 0 : Integer.parseInt(request.getNextToken());
+      if(start > 0) {
+        try {
+          overlapped &= fetching.await(5, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      List<ParameterMetadata> page = super.describeParameters(request).getParameters();
+      List<ParameterMetadata> metadata = page.subList(start, Math.min(start + 2, page.size()));
+      return new DescribeParametersResult().withParameters(new ArrayList<ParameterMetadata>(metadata)).
+        withNextToken(start + 2 < page.size() ? String.valueOf(start + 2) : null);
+    }
+
+    @Override
+    public GetParametersResult getParameters(GetParametersRequest request) {
+      fetching.countDown();
+      return super.getParameters(request);
+    }
+  }
+}
@@ -0,0 +1,299 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.AWSSimpleSystemsManagementException;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Run tests for {@link PathCrawler}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class PathCrawlerTest {
+
+  private final static int PAGE_SIZE = 10;
+
+  private final List<String> names = new ArrayList<String>();
+  private final Map<String,Long> versions = new HashMap<String,Long>();
+  private AWSSimpleSystemsManagement awsSimpleSystemsManagement;
+
+  /**
+   * Creates a hierarchy of parameters and a mock client that pages through them.
+   */
+  @Before
+  public void setUp() {
+    for(int i = 0; i < 5; i++) {
+      names.add("/service/leaf" + i);
+    }
+    for(int i = 0; i < 25; i++) {
+      names.add("/service/app/name" + i);
+    }
+    for(int i = 0; i < 12; i++) {
+      names.add("/service/db/primary/name" + i);
+    }
+    names.add("/service/db/name");
+    names.add("/other/name");
+
+    awsSimpleSystemsManagement = Mockito.mock(AWSSimpleSystemsManagement.class);
+    Mockito.when(awsSimpleSystemsManagement.getParametersByPath(Mockito.any(GetParametersByPathRequest.class))).thenAnswer(
+      new Answer<GetParametersByPathResult>() {
+        public GetParametersByPathResult answer(InvocationOnMock invocation) {
+          GetParametersByPathRequest request = (GetParametersByPathRequest)invocation.getArguments()[0];
+          List<String> matches = find(request.getPath(), request.getRecursive());
+          int start = request.getNextToken() == null ? 0 : Integer.parseInt(request.getNextToken());
+          int end = Math.min(start + PAGE_SIZE, matches.size());
+          List<Parameter> parameters = new ArrayList<Parameter>();
+          for(String name : matches.subList(start, end)) {
+            parameters.add(newParameter(name));
+          }
+          return new GetParametersByPathResult().withParameters(parameters).
+            withNextToken(end < matches.size() ? Integer.toString(end) : null);
+        }
+      }
+    );
+  }
+
+  /**
+   * Test that a large recursive hierarchy fetched in parallel matches the serial result.
+   */
+  @Test
+  public void testFetchInParallel() throws Exception {
+    mockDescribeParameters(false);
+    List<Parameter> parameters = newPathCrawler("/service", true).fetch();
+    Assert.assertEquals("names", find("/service", true), toNames(parameters));
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.atLeastOnce()).describeParameters(Mockito.any(DescribeParametersRequest.class));
+  }
+
+  /**
+   * Test that the remaining pages are fetched serially when the hierarchy cannot be described.
+   */
+  @Test
+  public void testFetchSerially() throws Exception {
+    mockDescribeParameters(true);
+    List<Parameter> parameters = newPathCrawler("/service/", true).fetch();
+    Assert.assertEquals("names", find("/service/", true), toNames(parameters));
+  }
+
+  /**
+   * Test that a small hierarchy is fetched in a single call.
+   */
+  @Test
+  public void testFetchSinglePage() throws Exception {
+    List<Parameter> parameters = newPathCrawler("/service/db", true).fetch();
+    Assert.assertEquals("names", find("/service/db", true), toNames(parameters));
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.times(1)).getParametersByPath(Mockito.any(GetParametersByPathRequest.class));
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.never()).describeParameters(Mockito.any(DescribeParametersRequest.class));
+  }
+
+  /**
+   * Test that a non-recursive fetch does not include child hierarchies.
+   */
+  @Test
+  public void testFetchNonRecursive() throws Exception {
+    List<Parameter> parameters = newPathCrawler("/service", false).fetch();
+    Assert.assertEquals("names", find("/service", false), toNames(parameters));
+  }
+
+  /**
+   * Test that revalidating a hierarchy only fetches new and changed parameters.
+   */
+  @Test
+  public void testRevalidate() throws Exception {
+    mockDescribeParameters(false);
+    mockGetParameters();
+    ParameterSnapshot previous = new ParameterSnapshot(newPathCrawler("/service", true).fetch(), System.currentTimeMillis());
+
+    names.remove("/service/leaf0");
+    names.add("/service/app/new");
+    versions.put("/service/app/name3", 2L);
+    List<Parameter> parameters = newPathCrawler("/service", true).revalidate(previous);
+    Assert.assertEquals("names", find("/service", true), toNames(parameters));
+
+    ArgumentCaptor<GetParametersRequest> captor = ArgumentCaptor.forClass(GetParametersRequest.class);
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.times(1)).getParameters(captor.capture());
+    Assert.assertEquals("changed", new TreeSet<String>(Arrays.asList("/service/app/name3", "/service/app/new")),
+      new TreeSet<String>(captor.getValue().getNames()));
+    for(Parameter parameter : parameters) {
+      if(parameter.getName().equals("/service/app/name3")) {
+        Assert.assertEquals("version", Long.valueOf(2L), parameter.getVersion());
+      }
+    }
+  }
+
+  /**
+   * Test that revalidating a non-recursive hierarchy does not include child hierarchies.
+   */
+  @Test
+  public void testRevalidateNonRecursive() throws Exception {
+    mockDescribeParameters(false);
+    mockGetParameters();
+    ParameterSnapshot previous = new ParameterSnapshot(newPathCrawler("/service", false).fetch(), System.currentTimeMillis());
+    List<Parameter> parameters = newPathCrawler("/service", false).revalidate(previous);
+    Assert.assertEquals("names", find("/service", false), toNames(parameters));
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.never()).getParameters(Mockito.any(GetParametersRequest.class));
+  }
+
+  /**
+   * Test that every parameter is fetched when the hierarchy cannot be described.
+   */
+  @Test
+  public void testRevalidateWithoutDescribe() throws Exception {
+    mockDescribeParameters(true);
+    ParameterSnapshot previous = new ParameterSnapshot(newPathCrawler("/service", false).fetch(), System.currentTimeMillis());
+    List<Parameter> parameters = newPathCrawler("/service", false).revalidate(previous);
+    Assert.assertEquals("names", find("/service", false), toNames(parameters));
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.times(2)).getParametersByPath(Mockito.any(GetParametersByPathRequest.class));
+  }
+
+  /**
+   * Test that every parameter is fetched when the changed parameters cannot be fetched.
+   */
+  @Test
+  public void testRevalidateGetParametersFails() throws Exception {
+    mockDescribeParameters(false);
+    Mockito.when(awsSimpleSystemsManagement.getParameters(Mockito.any(GetParametersRequest.class))).thenThrow(
+      new AWSSimpleSystemsManagementException("AccessDenied"));
+    ParameterSnapshot previous = new ParameterSnapshot(newPathCrawler("/service", false).fetch(), System.currentTimeMillis());
+
+    names.add("/service/new");
+    List<Parameter> parameters = newPathCrawler("/service", false).revalidate(previous);
+    Assert.assertEquals("names", find("/service", false), toNames(parameters));
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.times(1)).getParameters(Mockito.any(GetParametersRequest.class));
+    Mockito.verify(awsSimpleSystemsManagement, Mockito.times(2)).getParametersByPath(Mockito.any(GetParametersByPathRequest.class));
+  }
+
+  private PathCrawler newPathCrawler(String path, boolean recursive) {
+    return new PathCrawler(
+      new ParameterStoreClient(SsmParameterSource.adapt(awsSimpleSystemsManagement), new RateLimiter(1000, 1, 1000), new CircuitBreaker("test", 5, 1000), new RetryBudget(0)),
+      new PathKey("default", "eu-west-1", path, recursive, true));
+  }
+
+  /**
+   * Mocks <code>describeParameters</code> with a recursive path filter, or to deny access.
+   */
+  private void mockDescribeParameters(boolean denied) {
+    if(denied) {
+      Mockito.when(awsSimpleSystemsManagement.describeParameters(Mockito.any(DescribeParametersRequest.class))).thenThrow(
+        new AWSSimpleSystemsManagementException("AccessDenied"));
+      return;
+    }
+    Mockito.when(awsSimpleSystemsManagement.describeParameters(Mockito.any(DescribeParametersRequest.class))).thenAnswer(
+      new Answer<DescribeParametersResult>() {
+        public DescribeParametersResult answer(InvocationOnMock invocation) {
+          DescribeParametersRequest request = (DescribeParametersRequest)invocation.getArguments()[0];
+          ParameterStringFilter filter = request.getParameterFilters().get(0);
+          List<String> matches = find(filter.getValues().get(0), !"OneLevel".equals(filter.getOption()));
+          int start = request.getNextToken() == null ? 0 : Integer.parseInt(request.getNextToken());
+          int end = Math.min(start + request.getMaxResults(), matches.size());
+          List<ParameterMetadata> parameters = new ArrayList<ParameterMetadata>();
+          for(String name : matches.subList(start, end)) {
+            parameters.add(new ParameterMetadata().withName(name).withVersion(getVersion(name)));
+          }
+          return new DescribeParametersResult().withParameters(parameters).
+            withNextToken(end < matches.size() ? Integer.toString(end) : null);
+        }
+      }
+    );
+  }
+
+  /**
+   * Mocks <code>getParameters</code>, reporting unknown names as invalid.
+   */
+  private void mockGetParameters() {
+    Mockito.when(awsSimpleSystemsManagement.getParameters(Mockito.any(GetParametersRequest.class))).thenAnswer(
+      new Answer<GetParametersResult>() {
+        public GetParametersResult answer(InvocationOnMock invocation) {
+          GetParametersRequest request = (GetParametersRequest)invocation.getArguments()[0];
+          List<Parameter> parameters = new ArrayList<Parameter>();
+          List<String> invalid = new ArrayList<String>();
+          for(String name : request.getNames()) {
+            if(names.contains(name)) {
+              parameters.add(newParameter(name));
+            } else {
+              invalid.add(name);
+            }
+          }
+          return new GetParametersResult().withParameters(parameters).withInvalidParameters(invalid);
+        }
+      }
+    );
+  }
+
+  private Parameter newParameter(String name) {
+    return new Parameter().withName(name).withValue(name + "-value").withVersion(getVersion(name));
+  }
+
+  private Long getVersion(String name) {
+    return versions.containsKey(name) ? versions.get(name) : Long.valueOf(1L);
+  }
+
+  /**
+   * Finds the parameter names within <code>path</code>, in name order.
+   */
+  private List<String> find(String path, Boolean recursive) {
+    String prefix = path.endsWith("/") ? path : path + "/";
+    TreeSet<String> matches = new TreeSet<String>();
+    for(String name : names) {
+      if(name.startsWith(prefix) && (Boolean.TRUE.equals(recursive) || name.indexOf('/', prefix.length()) < 0)) {
+        matches.add(name);
+      }
+    }
+    return new ArrayList<String>(matches);
+  }
+
+  private List<String> toNames(List<Parameter> parameters) {
+    TreeSet<String> names = new TreeSet<String>();
+    for(Parameter parameter : parameters) {
+      Assert.assertEquals("value", parameter.getName() + "-value", parameter.getValue());
+      Assert.assertTrue("duplicate " + parameter.getName(), names.add(parameter.getName()));
+    }
+    return new ArrayList<String>(names);
+  }
+}
@@ -0,0 +1,213 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import jenkins.tasks.SimpleBuildWrapper;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Run tests for {@link Prefetcher}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class PrefetcherTest {
+
+  private final static long QUEUE_ID = 42L;
+  private final static int TIMEOUT = 10;
+
+  private AwsParameterStoreBuildWrapper wrapper;
+
+  /**
+   * Creates a build wrapper that adds one environment variable.
+   */
+  @Before
+  public void setUp() {
+    Prefetcher.clear();
+    wrapper = Mockito.mock(AwsParameterStoreBuildWrapper.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((SimpleBuildWrapper.Context)invocation.getArguments()[0]).env("PARAM", "value");
+        ((AwsParameterStoreAction)invocation.getArguments()[2]).addUnavailableParameter("/missing", "not found", false);
+        return null;
+      }
+    }).when(wrapper).buildEnvVars(Matchers.any(SimpleBuildWrapper.Context.class), Matchers.anyMapOf(String.class, String.class), Matchers.any(AwsParameterStoreAction.class));
+  }
+
+  /**
+   * Discards any prefetches left by a test.
+   */
+  @After
+  public void tearDown() {
+    Prefetcher.clear();
+  }
+
+  /**
+   * Test that a prefetch is collected once by the build wrapper it was started for.
+   */
+  @Test
+  public void testTake() throws Exception {
+    Prefetcher.start(QUEUE_ID, wrapper);
+    AwsParameterStoreAction action = new AwsParameterStoreAction();
+    Map<String,String> env = Prefetcher.take(QUEUE_ID, wrapper, TIMEOUT, action);
+    Assert.assertNotNull("prefetched", env);
+    Assert.assertEquals("PARAM", "value", env.get("PARAM"));
+    Assert.assertEquals("unavailable", 1, action.getUnavailableParameters().size());
+    Assert.assertEquals("unavailable name", "/missing", action.getUnavailableParameters().get(0).getName());
+    Assert.assertNull("second take", Prefetcher.take(QUEUE_ID, wrapper, TIMEOUT, null));
+    Assert.assertEquals("pending", 0, Prefetcher.getPending());
+  }
+
+  /**
+   * Test that a prefetch is only started once for a queue item.
+   */
+  @Test
+  public void testStartOnce() throws Exception {
+    Prefetcher.start(QUEUE_ID, wrapper);
+    Prefetcher.start(QUEUE_ID, wrapper);
+    Assert.assertNotNull("prefetched", Prefetcher.take(QUEUE_ID, wrapper, TIMEOUT, null));
+    Mockito.verify(wrapper, Mockito.times(1)).buildEnvVars(Matchers.any(SimpleBuildWrapper.Context.class), Matchers.anyMapOf(String.class, String.class), Matchers.any(AwsParameterStoreAction.class));
+  }
+
+  /**
+   * Test that a prefetch for a different build wrapper, for example after the job was
+   * reconfigured, is not used.
+   */
+  @Test
+  public void testTakeOtherWrapper() throws Exception {
+    Prefetcher.start(QUEUE_ID, wrapper);
+    Assert.assertNull("other wrapper", Prefetcher.take(QUEUE_ID, Mockito.mock(AwsParameterStoreBuildWrapper.class), TIMEOUT, null));
+    Assert.assertEquals("pending", 0, Prefetcher.getPending());
+  }
+
+  /**
+   * Test that a prefetch that does not finish in time is not used.
+   */
+  @Test
+  public void testTakeTimeout() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    AwsParameterStoreBuildWrapper slowWrapper = Mockito.mock(AwsParameterStoreBuildWrapper.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Exception {
+        release.await();
+        return null;
+      }
+    }).when(slowWrapper).buildEnvVars(Matchers.any(SimpleBuildWrapper.Context.class), Matchers.anyMapOf(String.class, String.class), Matchers.any(AwsParameterStoreAction.class));
+
+    Prefetcher.start(QUEUE_ID, slowWrapper);
+    try {
+      Assert.assertNull("timed out", Prefetcher.take(QUEUE_ID, slowWrapper, 1, null));
+      Assert.assertEquals("pending", 0, Prefetcher.getPending());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  /**
+   * Test that a prefetch that cannot be started, because the background fetches are busy,
+   * is not published.
+   */
+  @Test
+  public void testStartRejected() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    AwsParameterStoreBuildWrapper slowWrapper = Mockito.mock(AwsParameterStoreBuildWrapper.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Exception {
+        release.await();
+        return null;
+      }
+    }).when(slowWrapper).buildEnvVars(Matchers.any(SimpleBuildWrapper.Context.class), Matchers.anyMapOf(String.class, String.class), Matchers.any(AwsParameterStoreAction.class));
+
+    int capacity = FetchExecutor.BACKGROUND_THREADS + FetchExecutor.BACKGROUND_QUEUE;
+    try {
+      for(int i = 0; i < capacity; i++) {
+        Prefetcher.start(QUEUE_ID + 1 + i, slowWrapper);
+      }
+      Prefetcher.start(QUEUE_ID, wrapper);
+      Assert.assertEquals("pending", capacity, Prefetcher.getPending());
+      Assert.assertNull("rejected", Prefetcher.take(QUEUE_ID, wrapper, TIMEOUT, null));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  /**
+   * Test that a prefetch that finished too long ago is not used.
+   */
+  @Test
+  public void testTakeTooOld() throws Exception {
+    int maxAge = Prefetcher.MAX_AGE_SECONDS;
+    Prefetcher.MAX_AGE_SECONDS = 0;
+    try {
+      Prefetcher.start(QUEUE_ID, wrapper);
+      Assert.assertNull("too old", Prefetcher.take(QUEUE_ID, wrapper, TIMEOUT, null));
+      Assert.assertEquals("pending", 0, Prefetcher.getPending());
+    } finally {
+      Prefetcher.MAX_AGE_SECONDS = maxAge;
+    }
+  }
+
+  /**
+   * Test that wrappers without a credentials identifier are not prefetched.
+   */
+  @Test
+  public void testCanPrefetch() {
+    Assert.assertFalse("no credentials", Prefetcher.canPrefetch(wrapper));
+    Mockito.when(wrapper.getCredentialsId()).thenReturn("aws-admin");
+    Assert.assertTrue("credentials", Prefetcher.canPrefetch(wrapper));
+  }
+
+  /**
+   * Test that a discarded prefetch is not collected.
+   */
+  @Test
+  public void testDiscard() throws Exception {
+    Prefetcher.start(QUEUE_ID, wrapper);
+    Prefetcher.discard(QUEUE_ID);
+    Assert.assertEquals("pending", 0, Prefetcher.getPending());
+    Assert.assertNull("discarded", Prefetcher.take(QUEUE_ID, wrapper, TIMEOUT, null));
+  }
+
+  /**
+   * Test that only tasks with build wrappers are prefetched.
+   */
+  @Test
+  public void testGetBuildWrapperWithoutWrappers() {
+    Assert.assertNull("no build wrappers", Prefetcher.getBuildWrapper(new Object()));
+  }
+}
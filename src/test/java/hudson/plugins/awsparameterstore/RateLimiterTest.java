@@ -0,0 +1,118 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link RateLimiter}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class RateLimiterTest {
+
+  private final static double DELTA = 0.0001;
+
+  /**
+   * Test that throttling halves the rate, no lower than the minimum.
+   */
+  @Test
+  public void testOnThrottled() {
+    RateLimiter rateLimiter = new RateLimiter(20, 8, 40);
+    rateLimiter.onThrottled();
+    Assert.assertEquals("halved", 10, rateLimiter.getRate(), DELTA);
+    rateLimiter.onThrottled();
+    Assert.assertEquals("once a second", 10, rateLimiter.getRate(), DELTA);
+  }
+
+  /**
+   * Test that successful calls raise the rate, no higher than the maximum.
+   */
+  @Test
+  public void testOnSuccess() {
+    RateLimiter rateLimiter = new RateLimiter(10, 1, 11);
+    for(int i = 0; i < 10; i++) {
+      rateLimiter.onSuccess();
+    }
+    Assert.assertEquals("additive increase", 11, rateLimiter.getRate(), 0.1);
+    for(int i = 0; i < 100; i++) {
+      rateLimiter.onSuccess();
+    }
+    Assert.assertEquals("maximum", 11, rateLimiter.getRate(), DELTA);
+  }
+
+  /**
+   * Test that callers wait once the burst is used up.
+   */
+  @Test
+  public void testAcquire() throws Exception {
+    RateLimiter rateLimiter = new RateLimiter(10, 1, 10);
+    long start = System.nanoTime();
+    for(int i = 0; i < 15; i++) {
+      rateLimiter.acquire();
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+    Assert.assertTrue("waited " + elapsedMillis + "ms", elapsedMillis >= 400);
+  }
+
+  /**
+   * Test that limiters are shared by credentials and region.
+   */
+  @Test
+  public void testGet() {
+    Assert.assertSame("shared", RateLimiter.get("default", "eu-west-1"), RateLimiter.get("default", "eu-west-1"));
+    Assert.assertNotSame("region", RateLimiter.get("default", "eu-west-1"), RateLimiter.get("default", "us-east-1"));
+    Assert.assertTrue("rates", RateLimiter.getRates().containsKey("default@eu-west-1"));
+  }
+
+  /**
+   * Test that idle limiters are evicted and used ones kept.
+   */
+  @Test
+  public void testEvict() throws Exception {
+    RateLimiter.clear();
+    RateLimiter idle = RateLimiter.get("environment:AKIAIDLE", "eu-west-1");
+    Thread.sleep(20);
+    RateLimiter used = RateLimiter.get("default", "eu-west-1");
+    used.acquire();
+    RateLimiter.evict(10);
+    Assert.assertFalse("idle evicted", RateLimiter.getRates().containsKey("environment:AKIAIDLE@eu-west-1"));
+    Assert.assertSame("used kept", used, RateLimiter.get("default", "eu-west-1"));
+    Assert.assertNotSame("recreated", idle, RateLimiter.get("environment:AKIAIDLE", "eu-west-1"));
+  }
+
+  /**
+   * Test that environment credentials share a limiter by access key, whatever the secret or session token.
+   */
+  @Test
+  public void testRateLimitIdentity() {
+    Assert.assertEquals("environment", "environment:AKIA1",
+      AwsParameterStoreService.getRateLimitIdentity("environment:AKIA1:" + Digests.sha256("secret", "token1")));
+    Assert.assertEquals("rotated", AwsParameterStoreService.getRateLimitIdentity("environment:AKIA1:" + Digests.sha256("secret", "token1")),
+      AwsParameterStoreService.getRateLimitIdentity("environment:AKIA1:" + Digests.sha256("secret", "token2")));
+    Assert.assertEquals("credentials", "credentials:id", AwsParameterStoreService.getRateLimitIdentity("credentials:id"));
+  }
+}
@@ -0,0 +1,135 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link RefreshAhead}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class RefreshAheadTest {
+
+  private final static PathKey KEY1 = new PathKey("default", "eu-west-1", "/service1", true, true);
+  private final static PathKey KEY2 = new PathKey("default", "eu-west-1", "/service2", true, true);
+
+  private final ParameterCache cache = ParameterCache.get();
+
+  /**
+   * Enables the cache with a one minute time to live.
+   */
+  @Before
+  public void setUp() {
+    RefreshAhead.clear();
+    cache.setLimits(60, 1024);
+  }
+
+  /**
+   * Restores the default (disabled) cache.
+   */
+  @After
+  public void tearDown() {
+    RefreshAhead.clear();
+    cache.setLimits(AwsParameterStoreConfiguration.DEFAULT_CACHE_TTL, AwsParameterStoreConfiguration.DEFAULT_CACHE_MAX_SIZE);
+  }
+
+  /**
+   * Test that the most requested hierarchies come first.
+   */
+  @Test
+  public void testHotKeys() {
+    Callable<ParameterSnapshot> refresher = new Refresher(KEY1, new CountDownLatch(1));
+    RefreshAhead.record(KEY1, refresher);
+    RefreshAhead.record(KEY2, refresher);
+    RefreshAhead.record(KEY2, refresher);
+    Assert.assertEquals("hot keys", Arrays.asList(KEY2, KEY1), RefreshAhead.getHotKeys());
+    Assert.assertEquals("count", 2, RefreshAhead.getCount());
+  }
+
+  /**
+   * Test that only hierarchies about to expire are refreshed.
+   */
+  @Test
+  public void testRefresh() throws Exception {
+    CountDownLatch refreshed = new CountDownLatch(1);
+    Refresher expiring = new Refresher(KEY1, refreshed);
+    Refresher fresh = new Refresher(KEY2, new CountDownLatch(1));
+    cache.put(KEY1, new ParameterSnapshot(Collections.<Parameter>emptyList(), System.currentTimeMillis() - 50000));
+    cache.put(KEY2, new ParameterSnapshot(Collections.<Parameter>emptyList(), System.currentTimeMillis()));
+    RefreshAhead.record(KEY1, expiring);
+    RefreshAhead.record(KEY2, fresh);
+
+    Assert.assertEquals("started", 1, RefreshAhead.refresh());
+    Assert.assertTrue("refreshed", refreshed.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals("expiring calls", 1, expiring.calls.get());
+    Assert.assertEquals("fresh calls", 0, fresh.calls.get());
+  }
+
+  /**
+   * Test that nothing is refreshed when the cache is disabled.
+   */
+  @Test
+  public void testRefreshDisabled() {
+    cache.setLimits(0, 1024);
+    RefreshAhead.record(KEY1, new Refresher(KEY1, new CountDownLatch(1)));
+    Assert.assertEquals("started", 0, RefreshAhead.refresh());
+  }
+
+  /**
+   * Adds a new snapshot to the cache and counts calls.
+   */
+  private class Refresher implements Callable<ParameterSnapshot> {
+    private final PathKey key;
+    private final CountDownLatch done;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    Refresher(PathKey key, CountDownLatch done) {
+      this.key = key;
+      this.done = done;
+    }
+
+    @Override
+    public ParameterSnapshot call() {
+      calls.incrementAndGet();
+      ParameterSnapshot snapshot = new ParameterSnapshot(Collections.<Parameter>emptyList(), System.currentTimeMillis());
+      cache.put(key, snapshot);
+      done.countDown();
+      return snapshot;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run tests for {@link SingleFlight}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class SingleFlightTest {
+
+  private final static int CALLERS = 8;
+
+  /**
+   * Test that concurrent callers for the same key share one call.
+   */
+  @Test
+  public void testConcurrentCallsAreCoalesced() throws Exception {
+    final SingleFlight<String,String> singleFlight = new SingleFlight<String,String>();
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    try {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      results.add(executor.submit(new Caller(singleFlight, new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          calls.incrementAndGet();
+          started.countDown();
+          release.await();
+          return "value";
+        }
+      })));
+      started.await();
+      for(int i = 1; i < CALLERS; i++) {
+        results.add(executor.submit(new Caller(singleFlight, new Callable<String>() {
+          @Override
+          public String call() {
+            calls.incrementAndGet();
+            return "unexpected";
+          }
+        })));
+      }
+      // give the waiting callers time to join the call in flight
+      Thread.sleep(200);
+      release.countDown();
+      for(Future<String> result : results) {
+        Assert.assertEquals("result", "value", result.get(5, TimeUnit.SECONDS));
+      }
+      Assert.assertEquals("calls", 1, calls.get());
+      Assert.assertEquals("in flight", 0, singleFlight.getInFlight());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that a failed call is reported to the caller and is not remembered.
+   */
+  @Test
+  public void testFailureIsNotCached() throws Exception {
+    SingleFlight<String,String> singleFlight = new SingleFlight<String,String>();
+    try {
+      singleFlight.execute("key", new Callable<String>() {
+        @Override
+        public String call() {
+          throw new IllegalStateException("failed");
+        }
+      });
+      Assert.fail("Expected exception");
+    } catch(IllegalStateException e) {
+      Assert.assertEquals("message", "failed", e.getMessage());
+    }
+    Assert.assertEquals("retry", "value", singleFlight.execute("key", new Callable<String>() {
+      @Override
+      public String call() {
+        return "value";
+      }
+    }));
+  }
+
+  /**
+   * Calls {@link SingleFlight#execute} with a fixed key.
+   */
+  private static class Caller implements Callable<String> {
+    private final SingleFlight<String,String> singleFlight;
+    private final Callable<String> callable;
+
+    Caller(SingleFlight<String,String> singleFlight, Callable<String> callable) {
+      this.singleFlight = singleFlight;
+      this.callable = callable;
+    }
+
+    @Override
+    public String call() throws Exception {
+      return singleFlight.execute("key", callable);
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/**
+  * MIT License
+  *
+  * Copyright (c) 2018 Rik Turnbull
+  *
+  * Permission is hereby granted, free of charge, to any person obtaining a copy
+  * of this software and associated documentation files (the "Software"), to deal
+  * in the Software without restriction, including without limitation the rights
+  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  * copies of the Software, and to permit persons to whom the Software is
+  * furnished to do so, subject to the following conditions:
+  *
+  * The above copyright notice and this permission notice shall be included in all
+  * copies or substantial portions of the Software.
+  *
+  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  * SOFTWARE.
+  */
+package hudson.plugins.awsparameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Run tests for {@link SnapshotStore}.
+ *
+ * @author Rik Turnbull
+ *
+ */
+public class SnapshotStoreTest {
+
+  private final static PathKey KEY1 = new PathKey("default", "eu-west-1", "/service1", true, true);
+  private final static PathKey KEY2 = new PathKey("default", "eu-west-1", "/service2", true, true);
+  private final static byte[] SECRET = "0123456789abcdef".getBytes();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private SnapshotStore store;
+
+  /**
+   * Creates a store with a fixed test key.
+   */
+  @Before
+  public void setUp() {
+    SnapshotStore.Key key = new SnapshotStore.Key(SnapshotStoreTest.class, "test") {
+      @Override
+      SecretKey getKey() {
+        return new SecretKeySpec(SECRET, "AES");
+      }
+    };
+    store = new SnapshotStore(new File(folder.getRoot(), "snapshots"), key);
+    SnapshotStore.setMaxAge(3600);
+  }
+
+  /**
+   * Restores the default (disabled) persistence.
+   */
+  @After
+  public void tearDown() {
+    SnapshotStore.setMaxAge(AwsParameterStoreConfiguration.DEFAULT_CACHE_PERSISTENT_MAX_AGE);
+  }
+
+  /**
+   * Test that a saved snapshot is loaded with all of its parameters.
+   */
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    long fetchedAt = System.currentTimeMillis();
+    store.save(KEY1, new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service1/name1").withType("SecureString").withValue("secret-value").withVersion(3L),
+      new Parameter().withName("/service1/name2").withType("String").withValue(null)), fetchedAt));
+
+    ParameterSnapshot snapshot = store.load(KEY1);
+    Assert.assertNotNull("snapshot", snapshot);
+    Assert.assertEquals("fetchedAt", fetchedAt, snapshot.getFetchedAt());
+    Assert.assertEquals("count", 2, snapshot.getParameters().size());
+    Parameter parameter = snapshot.getParameters().get(0);
+    Assert.assertEquals("name", "/service1/name1", parameter.getName());
+    Assert.assertEquals("type", "SecureString", parameter.getType());
+    Assert.assertEquals("value", "secret-value", parameter.getValue());
+    Assert.assertEquals("version", Long.valueOf(3L), parameter.getVersion());
+    Assert.assertNull("null value", snapshot.getParameters().get(1).getValue());
+    Assert.assertNull("other key", store.load(KEY2));
+  }
+
+  /**
+   * Test that a snapshot is only read once, to warm the cache.
+   */
+  @Test
+  public void testLoadOnce() throws Exception {
+    store.save(KEY1, new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service1/name1").withType("String").withValue("value")), System.currentTimeMillis()));
+    Assert.assertNotNull("first", store.loadOnce(KEY1));
+    Assert.assertNull("second", store.loadOnce(KEY1));
+    Assert.assertNotNull("load", store.load(KEY1));
+  }
+
+  /**
+   * Test that values are not stored in plain text.
+   */
+  @Test
+  public void testEncrypted() throws Exception {
+    store.save(KEY1, new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service1/name1").withType("SecureString").withValue("secret-value")), System.currentTimeMillis()));
+    File[] files = new File(folder.getRoot(), "snapshots").listFiles();
+    Assert.assertEquals("files", 1, files.length);
+    Assert.assertFalse("plain text", new String(Files.readAllBytes(files[0].toPath()), "ISO-8859-1").contains("secret-value"));
+  }
+
+  /**
+   * Test that snapshots older than the maximum age are deleted.
+   */
+  @Test
+  public void testMaxAge() throws Exception {
+    store.save(KEY1, new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service1/name1").withValue("value1")), System.currentTimeMillis() - 7200000));
+    Assert.assertNull("expired", store.load(KEY1));
+    Assert.assertEquals("files", 0, new File(folder.getRoot(), "snapshots").listFiles().length);
+  }
+
+  /**
+   * Test that a corrupt snapshot is deleted.
+   */
+  @Test
+  public void testCorrupt() throws Exception {
+    store.save(KEY1, new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service1/name1").withValue("value1")), System.currentTimeMillis()));
+    File file = new File(folder.getRoot(), "snapshots").listFiles()[0];
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(new byte[] { 1, 2, 3 });
+    } finally {
+      out.close();
+    }
+    Assert.assertNull("corrupt", store.load(KEY1));
+    Assert.assertFalse("deleted", file.exists());
+  }
+
+  /**
+   * Test that each snapshot is encrypted with a new IV, so identical snapshots differ on disk.
+   */
+  @Test
+  public void testRandomIv() throws Exception {
+    ParameterSnapshot snapshot = new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service1/name1").withValue("value1")), System.currentTimeMillis());
+    File file = new File(folder.getRoot(), "snapshots");
+    store.save(KEY1, snapshot);
+    byte[] first = Files.readAllBytes(file.listFiles()[0].toPath());
+    store.save(KEY1, snapshot);
+    byte[] second = Files.readAllBytes(file.listFiles()[0].toPath());
+    Assert.assertFalse("same bytes", Arrays.equals(first, second));
+    Assert.assertNotNull("load", store.load(KEY1));
+  }
+
+  /**
+   * Test that snapshot files older than the maximum age are pruned without being read.
+   */
+  @Test
+  public void testPrune() throws Exception {
+    store.save(KEY1, new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service1/name1").withValue("value1")), System.currentTimeMillis()));
+    store.save(KEY2, new ParameterSnapshot(Arrays.asList(
+      new Parameter().withName("/service2/name1").withValue("value1")), System.currentTimeMillis()));
+    File directory = new File(folder.getRoot(), "snapshots");
+    File[] files = directory.listFiles();
+    Assert.assertTrue("old", files[0].setLastModified(System.currentTimeMillis() - 7200000));
+
+    store.prune();
+    Assert.assertFalse("pruned", files[0].exists());
+    Assert.assertTrue("kept", files[1].exists());
+  }
+}